@@ -0,0 +1,123 @@
+package io.poc.inventoryservice.cache;
+
+import io.poc.inventoryservice.engine.ReservationEngine;
+import io.poc.inventoryservice.entity.Food;
+import io.poc.inventoryservice.model.FoodDto;
+import io.poc.inventoryservice.model.MenuDelta;
+import io.poc.inventoryservice.model.MenuSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Holds the menu as an immutable snapshot plus its serialised JSON, so /menu needs neither a query nor
+// serialisation until the next stock change. Versions start at the startup wall clock (in microseconds)
+// so an ETag handed out before a restart never matches a newer menu.
+@Component
+public class MenuCache {
+
+    private final ReservationEngine reservationEngine;
+    private final JsonMapper jsonMapper;
+    private final MenuChangeLog changeLog;
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis() * 1000);
+    private volatile MenuSnapshot snapshot;
+
+    private final Logger log = LoggerFactory.getLogger(MenuCache.class);
+
+    public MenuCache(
+            ReservationEngine reservationEngine,
+            JsonMapper jsonMapper,
+            @Value("${inventory.menu.change-log-size:4096}") int changeLogSize
+    ) {
+        this.reservationEngine = reservationEngine;
+        this.jsonMapper = jsonMapper;
+        this.changeLog = new MenuChangeLog(changeLogSize, version.get());
+    }
+
+    public MenuSnapshot current() {
+        MenuSnapshot current = snapshot;
+        if (current != null && current.getVersion() == version.get()) {
+            return current;
+        }
+        return rebuild();
+    }
+
+    public MenuDelta changesSince(long sinceVersion) {
+        MenuSnapshot current = current();
+
+        Set<Long> changed = sinceVersion <= current.getVersion()
+                ? changeLog.changedBetween(sinceVersion, current.getVersion())
+                : null;
+
+        if (changed == null) {
+            log.info("Version {} is outside the change log, answering with the full menu", sinceVersion);
+            return MenuDelta.builder()
+                    .version(current.getVersion())
+                    .full(true)
+                    .items(current.getItems())
+                    .build();
+        }
+
+        return MenuDelta.builder()
+                .version(current.getVersion())
+                .full(false)
+                .items(current.getItems()
+                        .stream()
+                        .filter(food -> changed.contains(food.getId()))
+                        .toList())
+                .build();
+    }
+
+//    The version bump and its change-log entries happen under the log's lock, so a reader that sees
+//    version V and then asks the log will always find V's entries.
+    public long recordChange(Collection<Long> foodIds) {
+        synchronized (changeLog) {
+            long changedVersion = version.incrementAndGet();
+            changeLog.record(changedVersion, foodIds);
+            return changedVersion;
+        }
+    }
+
+    private synchronized MenuSnapshot rebuild() {
+        long target = version.get();
+
+        MenuSnapshot current = snapshot;
+        if (current != null && current.getVersion() == target) {
+            return current;
+        }
+
+        List<FoodDto> items = reservationEngine.getAllFood()
+                .stream()
+                .map(MenuCache::toFoodDto)
+                .toList();
+
+        MenuSnapshot rebuilt = MenuSnapshot.builder()
+                .version(target)
+                .etag("\"" + target + "\"")
+                .items(items)
+                .payload(jsonMapper.writeValueAsBytes(items))
+                .build();
+        snapshot = rebuilt;
+
+        log.info("Menu snapshot rebuilt at version {} with {} items", target, items.size());
+        return rebuilt;
+    }
+
+    public static FoodDto toFoodDto(Food food) {
+        return FoodDto.builder()
+                .id(food.getFoodId())
+                .name(food.getName())
+                .price(food.getPrice())
+                .description(food.getDescription())
+                .stock(food.getStock())
+                .reservedCount(food.getReservedStock())
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package io.poc.inventoryservice.cache;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+// Bounded ring of (version, foodId) pairs. Once the ring wraps, the highest overwritten version marks
+// how far back it can still answer "what changed since N".
+public class MenuChangeLog {
+
+    private final long[] versions;
+    private final long[] foodIds;
+
+    private int next;
+    private boolean wrapped;
+    private long evictedUpTo;
+
+//    Nothing that happened before startVersion is known, so it counts as evicted.
+    public MenuChangeLog(int capacity, long startVersion) {
+        this.versions = new long[capacity];
+        this.foodIds = new long[capacity];
+        this.evictedUpTo = startVersion;
+    }
+
+    public synchronized void record(long version, Collection<Long> changedFoodIds) {
+        for (Long foodId : changedFoodIds) {
+            if (wrapped) {
+                evictedUpTo = versions[next];
+            }
+
+            versions[next] = version;
+            foodIds[next] = foodId;
+
+            next = (next + 1) % versions.length;
+            wrapped |= next == 0;
+        }
+    }
+
+    // Food ids changed in (sinceVersion, upToVersion], or null when that range has been evicted.
+    public synchronized Set<Long> changedBetween(long sinceVersion, long upToVersion) {
+        if (sinceVersion < evictedUpTo) {
+            return null;
+        }
+
+        Set<Long> changed = new HashSet<>();
+        int size = wrapped ? versions.length : next;
+        for (int i = 0; i < size; i++) {
+            if (versions[i] > sinceVersion && versions[i] <= upToVersion) {
+                changed.add(foodIds[i]);
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,44 @@
+package io.poc.inventoryservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.poc.inventoryservice.model.ReservationResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Recent reserve() answers by orderId, so a retried or replayed reserve is answered from memory.
+// Hit, miss and eviction counts are published as the cache.* meters tagged cache=reservation-results.
+@Component
+public class ReservationResultCache {
+
+    private final Cache<Long, ReservationResult> results;
+
+    public ReservationResultCache(
+            MeterRegistry meterRegistry,
+            @Value("${inventory.reserve-cache.max-size:10000}") long maxSize,
+            @Value("${inventory.reserve-cache.ttl:10m}") Duration ttl
+    ) {
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "reservation-results");
+    }
+
+    public ReservationResult get(Long orderId) {
+        return results.getIfPresent(orderId);
+    }
+
+    public void put(ReservationResult result) {
+        results.put(result.getOrderId(), result);
+    }
+
+    public void invalidate(Long orderId) {
+        results.invalidate(orderId);
+    }
+}
@@ -0,0 +1,48 @@
+package io.poc.inventoryservice.controller;
+
+import io.poc.inventoryservice.service.HotItemService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/inventory-service")
+@ConditionalOnProperty(name = "inventory.reservation.engine", havingValue = "locking", matchIfMissing = true)
+public class HotItemController {
+
+    private final HotItemService hotItemService;
+    private final Logger log = LoggerFactory.getLogger(HotItemController.class);
+
+    @Value("${inventory.hot-items.default-slots:8}")
+    private int defaultSlots;
+
+    public HotItemController(HotItemService hotItemService) {
+        this.hotItemService = hotItemService;
+        log.info("Initializing HotItemController");
+    }
+
+    @PostMapping("/hot-items/{foodId}")
+    public ResponseEntity<Void> makeHot(
+            @PathVariable Long foodId,
+            @RequestParam(required = false) Integer slots) {
+        log.info("Entering HotItemController::makeHot()");
+
+        hotItemService.makeHot(foodId, slots != null && slots > 0 ? slots : defaultSlots);
+        log.info("Exiting HotItemController::makeHot()");
+
+        return ResponseEntity.ok().build();
+    }
+
+    @DeleteMapping("/hot-items/{foodId}")
+    public ResponseEntity<Void> makeRegular(@PathVariable Long foodId) {
+        log.info("Entering HotItemController::makeRegular()");
+
+        hotItemService.makeRegular(foodId);
+        log.info("Exiting HotItemController::makeRegular()");
+
+        return ResponseEntity.ok().build();
+    }
+}
@@ -4,8 +4,11 @@ import io.poc.inventoryservice.model.*;
 import io.poc.inventoryservice.service.InventoryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
@@ -14,6 +17,8 @@ import java.util.List;
 @RequestMapping("/api/v1/inventory-service")
 public class InventoryController {
 
+    private static final String MENU_VERSION_HEADER = "X-Menu-Version";
+
     private final InventoryService inventoryService;
     private final Logger log = LoggerFactory.getLogger(InventoryController.class);
 
@@ -23,13 +28,40 @@ public class InventoryController {
     }
 
     @GetMapping("/menu")
-    public ResponseEntity<List<FoodDto>> getMenu() {
+    public ResponseEntity<byte[]> getMenu(WebRequest request) {
 
         log.info("Entering InventoryController::getMenu()");
-        List<FoodDto> foodList = inventoryService.getMenu();
+        MenuSnapshot menu = inventoryService.getMenuSnapshot();
+
+        if (request.checkNotModified(menu.getEtag())) {
+            log.info("Exiting InventoryController::getMenu() - not modified");
+            return null;
+        }
 
         log.info("Exiting InventoryController::getMenu()");
-        return ResponseEntity.ok().body(foodList);
+        return ResponseEntity.ok()
+                .eTag(menu.getEtag())
+                .header(MENU_VERSION_HEADER, String.valueOf(menu.getVersion()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(menu.getPayload());
+    }
+
+    @GetMapping(value = "/menu", params = "sinceVersion")
+    public ResponseEntity<MenuDelta> getMenuChanges(@RequestParam long sinceVersion) {
+
+        log.info("Entering InventoryController::getMenuChanges() since version {}", sinceVersion);
+        MenuDelta delta = inventoryService.getMenuChanges(sinceVersion);
+
+        log.info("Exiting InventoryController::getMenuChanges()");
+        return ResponseEntity.ok()
+                .header(MENU_VERSION_HEADER, String.valueOf(delta.getVersion()))
+                .body(delta);
+    }
+
+    @GetMapping(path = "/menu/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<StockChangeEvent> streamStockChanges() {
+        log.info("Entering InventoryController::streamStockChanges()");
+        return inventoryService.stockChanges();
     }
 
     @PostMapping("/reserve")
@@ -42,6 +74,16 @@ public class InventoryController {
         return ResponseEntity.ok(reservation);
     }
 
+    @PostMapping("/reserve/batch")
+    public ResponseEntity<Mono<List<ReservationResult>>> reserveBatch(@RequestBody List<OrderDto> orders) {
+        log.info("Entering InventoryController::reserveBatch()");
+
+        Mono<List<ReservationResult>> reservations = inventoryService.reserveAll(orders);
+        log.info("Exiting InventoryController::reserveBatch()");
+
+        return ResponseEntity.ok(reservations);
+    }
+
     @PostMapping("/reserve/confirm")
     public ResponseEntity<Void> reserveConfirm(@RequestParam Long orderId) {
         log.info("Entering InventoryController::reserveConfirm()");
@@ -62,4 +104,24 @@ public class InventoryController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/reserve/confirm/batch")
+    public ResponseEntity<Void> reserveConfirmBatch(@RequestBody List<Long> orderIds) {
+        log.info("Entering InventoryController::reserveConfirmBatch()");
+
+        inventoryService.confirmAll(orderIds);
+        log.info("Exiting InventoryController::reserveConfirmBatch()");
+
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/reserve/cancel/batch")
+    public ResponseEntity<Void> reserveCancelBatch(@RequestBody List<Long> orderIds) {
+        log.info("Entering InventoryController::reserveCancelBatch()");
+
+        inventoryService.cancelAll(orderIds);
+        log.info("Exiting InventoryController::reserveCancelBatch()");
+
+        return ResponseEntity.ok().build();
+    }
+
 }
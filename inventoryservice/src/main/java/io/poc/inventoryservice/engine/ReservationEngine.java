@@ -0,0 +1,26 @@
+package io.poc.inventoryservice.engine;
+
+import io.poc.inventoryservice.entity.Food;
+import io.poc.inventoryservice.model.OrderDto;
+import io.poc.inventoryservice.model.ReservationItem;
+import io.poc.inventoryservice.model.ReservationResult;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ReservationEngine {
+
+    List<Food> getAllFood();
+
+    List<Food> getFoods(Collection<Long> foodIds);
+
+    ReservationResult reserve(OrderDto order);
+
+    List<ReservationItem> confirm(Long orderId);
+
+    List<ReservationItem> cancel(Long orderId);
+
+    List<ReservationItem> confirmAll(Collection<Long> orderIds);
+
+    List<ReservationItem> cancelAll(Collection<Long> orderIds);
+}
@@ -0,0 +1,125 @@
+package io.poc.inventoryservice.engine.impl;
+
+import io.poc.inventoryservice.engine.ReservationEngine;
+import io.poc.inventoryservice.entity.Food;
+import io.poc.inventoryservice.ledger.StockLedger;
+import io.poc.inventoryservice.model.OrderDto;
+import io.poc.inventoryservice.model.OrderItemDto;
+import io.poc.inventoryservice.model.ReservationItem;
+import io.poc.inventoryservice.model.ReservationResult;
+import io.poc.inventoryservice.repository.InventoryRepository;
+import io.poc.inventoryservice.repository.ReservationRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "inventory.reservation.engine", havingValue = "ledger")
+public class LedgerReservationEngine implements ReservationEngine {
+
+    private final StockLedger stockLedger;
+    private final InventoryRepository inventoryRepository;
+    private final ReservationRepository reservationRepository;
+
+    private final Logger log = LoggerFactory.getLogger(LedgerReservationEngine.class);
+
+    public LedgerReservationEngine(
+            StockLedger stockLedger,
+            InventoryRepository inventoryRepository,
+            ReservationRepository reservationRepository
+    ) {
+        this.stockLedger = stockLedger;
+        this.inventoryRepository = inventoryRepository;
+        this.reservationRepository = reservationRepository;
+        log.info("Initializing LedgerReservationEngine");
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        List<Food> foods = inventoryRepository.getAllFood();
+        stockLedger.load(foods, reservationRepository.findByStatus("RESERVED"));
+        log.info("Stock ledger rebuilt for {} foods", foods.size());
+    }
+
+    @Override
+    public List<Food> getAllFood() {
+        return inventoryRepository.getAllFood()
+                .stream()
+                .peek(stockLedger::track)
+                .map(stockLedger::current)
+                .toList();
+    }
+
+    @Override
+    public List<Food> getFoods(Collection<Long> foodIds) {
+        return inventoryRepository.findAllById(foodIds)
+                .stream()
+                .map(stockLedger::current)
+                .toList();
+    }
+
+    @Override
+    public ReservationResult reserve(OrderDto order) {
+        log.info("Entering LedgerReservationEngine::reserve()");
+
+//        Dishes added to the food table after startup are picked up on first use.
+        List<Long> unknown = order.getItems()
+                .stream()
+                .map(OrderItemDto::getFoodId)
+                .filter(foodId -> !stockLedger.contains(foodId))
+                .toList();
+        if (!unknown.isEmpty()) {
+            inventoryRepository.findAllById(unknown).forEach(stockLedger::track);
+        }
+
+        List<ReservationItem> reservedItems = stockLedger.reserve(order.getOrderId(), order.getItems());
+
+        log.info("Exiting LedgerReservationEngine::reserve()");
+        return ReservationResult.builder()
+                .orderId(order.getOrderId())
+                .reservationItems(reservedItems)
+                .reservationStatus("RESERVED")
+                .build();
+    }
+
+    @Override
+    public List<ReservationItem> confirm(Long orderId) {
+        log.info("Entering LedgerReservationEngine::confirm()");
+        return stockLedger.confirm(orderId);
+    }
+
+    @Override
+    public List<ReservationItem> cancel(Long orderId) {
+        log.info("Entering LedgerReservationEngine::cancel()");
+        return stockLedger.cancel(orderId);
+    }
+
+    @Override
+    public List<ReservationItem> confirmAll(Collection<Long> orderIds) {
+        log.info("Entering LedgerReservationEngine::confirmAll() for {} orders", orderIds.size());
+
+//        Settling is an in-memory step per order; the writer already flushes the outcome in batches.
+        List<ReservationItem> confirmedItems = new ArrayList<>();
+        for (Long orderId : orderIds) {
+            confirmedItems.addAll(stockLedger.confirm(orderId));
+        }
+        return confirmedItems;
+    }
+
+    @Override
+    public List<ReservationItem> cancelAll(Collection<Long> orderIds) {
+        log.info("Entering LedgerReservationEngine::cancelAll() for {} orders", orderIds.size());
+
+        List<ReservationItem> cancelledItems = new ArrayList<>();
+        for (Long orderId : orderIds) {
+            cancelledItems.addAll(stockLedger.cancel(orderId));
+        }
+        return cancelledItems;
+    }
+}
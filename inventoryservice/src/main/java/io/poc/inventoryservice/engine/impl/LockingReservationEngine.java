@@ -0,0 +1,305 @@
+package io.poc.inventoryservice.engine.impl;
+
+import io.poc.inventoryservice.engine.ReservationEngine;
+import io.poc.inventoryservice.entity.Food;
+import io.poc.inventoryservice.entity.FoodSlot;
+import io.poc.inventoryservice.entity.Reservation;
+import io.poc.inventoryservice.exception.OutOfStockException;
+import io.poc.inventoryservice.hotitem.HotItemRegistry;
+import io.poc.inventoryservice.model.OrderDto;
+import io.poc.inventoryservice.model.OrderItemDto;
+import io.poc.inventoryservice.model.ReservationItem;
+import io.poc.inventoryservice.model.ReservationResult;
+import io.poc.inventoryservice.repository.FoodSlotRepository;
+import io.poc.inventoryservice.repository.InventoryRepository;
+import io.poc.inventoryservice.repository.ReservationRepository;
+import io.poc.inventoryservice.repository.ReservationSettlementRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+@ConditionalOnProperty(name = "inventory.reservation.engine", havingValue = "locking", matchIfMissing = true)
+public class LockingReservationEngine implements ReservationEngine {
+
+    private final InventoryRepository inventoryRepository;
+    private final ReservationRepository reservationRepository;
+    private final FoodSlotRepository foodSlotRepository;
+    private final ReservationSettlementRepository settlementRepository;
+    private final HotItemRegistry hotItemRegistry;
+
+    private final Logger log = LoggerFactory.getLogger(LockingReservationEngine.class);
+
+    public LockingReservationEngine(
+            InventoryRepository inventoryRepository,
+            ReservationRepository reservationRepository,
+            FoodSlotRepository foodSlotRepository,
+            ReservationSettlementRepository settlementRepository,
+            HotItemRegistry hotItemRegistry
+    ) {
+        this.inventoryRepository = inventoryRepository;
+        this.reservationRepository = reservationRepository;
+        this.foodSlotRepository = foodSlotRepository;
+        this.settlementRepository = settlementRepository;
+        this.hotItemRegistry = hotItemRegistry;
+        log.info("Initializing LockingReservationEngine");
+    }
+
+    @Override
+    public List<Food> getAllFood() {
+        return withSlots(inventoryRepository.getAllFood(), foodSlotRepository.getAllSlots());
+    }
+
+    @Override
+    public List<Food> getFoods(Collection<Long> foodIds) {
+        return withSlots(inventoryRepository.findAllById(foodIds), foodSlotRepository.findByFoodIdIn(foodIds));
+    }
+
+    @Transactional
+    @Override
+    public ReservationResult reserve(OrderDto order) {
+        log.info("Entering LockingReservationEngine::reserve()");
+
+        List<OrderItemDto> items = order.getItems();
+        items.sort(Comparator.comparing(OrderItemDto::getFoodId));
+
+//        One ordered SELECT ... FOR UPDATE for every regular dish in the order; rows are locked in foodId order.
+//        Hot dishes never lock their food row, they draw from food_slot rows afterwards.
+        List<Long> regularFoodIds = items.stream()
+                .map(OrderItemDto::getFoodId)
+                .filter(foodId -> !hotItemRegistry.isHot(foodId))
+                .distinct()
+                .toList();
+
+        Map<Long, Food> foods = regularFoodIds.isEmpty()
+                ? Map.of()
+                : inventoryRepository.lockAllByIdOrdered(regularFoodIds)
+                        .stream()
+                        .collect(Collectors.toMap(Food::getFoodId, Function.identity()));
+
+        Set<Long> reservedFoodIds = reservationRepository.getByOrderId(order.getOrderId())
+                .stream()
+                .map(Reservation::getFoodId)
+                .collect(Collectors.toSet());
+
+        List<Reservation> newReservations = new ArrayList<>();
+        List<ReservationItem> reservedItems = new ArrayList<>();
+
+        for (OrderItemDto item : items) {
+
+            log.info("Setting reservation for food: {}", item.getFoodId());
+
+            if (reservedFoodIds.add(item.getFoodId())) {
+
+                if (hotItemRegistry.isHot(item.getFoodId())) {
+                    newReservations.addAll(reserveFromSlots(order.getOrderId(), item));
+                } else {
+                    newReservations.addAll(reserveFromFood(order.getOrderId(), foods.get(item.getFoodId()), item));
+                }
+            }
+
+            reservedItems.add(ReservationItem.builder()
+                    .foodId(item.getFoodId())
+                    .quantity(item.getQuantity())
+                    .build());
+        }
+
+        reservationRepository.saveAll(newReservations);
+
+        log.info("Exiting LockingReservationEngine::reserve()");
+        return ReservationResult.builder()
+                .orderId(order.getOrderId())
+                .reservationItems(reservedItems)
+                .reservationStatus("RESERVED")
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public List<ReservationItem> confirm(Long orderId) {
+        log.info("Entering LockingReservationEngine::confirm()");
+        return confirmAll(List.of(orderId));
+    }
+
+    @Override
+    @Transactional
+    public List<ReservationItem> cancel(Long orderId) {
+        log.info("Entering LockingReservationEngine::cancel()");
+        return cancelAll(List.of(orderId));
+    }
+
+    @Override
+    @Transactional
+    public List<ReservationItem> confirmAll(Collection<Long> orderIds) {
+        log.info("Entering LockingReservationEngine::confirmAll() for {} orders", orderIds.size());
+        return settle(orderIds, "CONFIRMED");
+    }
+
+    @Override
+    @Transactional
+    public List<ReservationItem> cancelAll(Collection<Long> orderIds) {
+        log.info("Entering LockingReservationEngine::cancelAll() for {} orders", orderIds.size());
+        return settle(orderIds, "CANCELLED");
+    }
+
+    private List<ReservationItem> settle(Collection<Long> orderIds, String status) {
+
+//        Lock the open reservation rows first, so a concurrent settle of the same order waits here and
+//        then finds nothing left to do. Orders that are already confirmed or cancelled simply drop out.
+        List<Reservation> reservations = orderIds.isEmpty()
+                ? List.of()
+                : reservationRepository.lockOpenByOrderIds(orderIds);
+
+        if (reservations.isEmpty()) {
+            log.info("Exiting LockingReservationEngine::settle() - nothing to {}", status);
+            return List.of();
+        }
+
+        List<Long> foodIds = reservations.stream()
+                .map(Reservation::getFoodId)
+                .distinct()
+                .sorted()
+                .toList();
+
+//        Same foodId lock order as reserve, then a handful of set-based statements for the whole batch.
+        settlementRepository.lockFood(foodIds);
+        if (status.equals("CONFIRMED")) {
+            settlementRepository.confirmStock(orderIds, foodIds);
+        } else {
+            settlementRepository.releaseStock(orderIds, foodIds);
+        }
+        int closed = settlementRepository.closeReservations(orderIds, status);
+
+        log.info("Exiting LockingReservationEngine::settle() - {} reservations {}", closed, status);
+        return reservations.stream()
+                .map(this::toItem)
+                .toList();
+    }
+
+    private List<Reservation> reserveFromFood(Long orderId, Food food, OrderItemDto item) {
+
+        if (food == null) {
+            log.info("The Food product {} does not exist", item.getFoodId());
+            throw new OutOfStockException("Out of stock");
+        }
+
+        int availableStock = food.getStock() - food.getReservedStock();
+
+        if (availableStock < item.getQuantity()) {
+
+//            makeHot moves the stock into slots under this same row lock but only registers the food after
+//            commit; if the slots are already there, reserve from them instead of reporting out of stock.
+            List<FoodSlot> slots = foodSlotRepository.lockSlotsByFoodId(food.getFoodId());
+            if (!slots.isEmpty()) {
+                hotItemRegistry.register(food.getFoodId(), slots.size());
+                return reserveFromSlots(orderId, item);
+            }
+
+            log.info("The Food product has not enough stock");
+            throw new OutOfStockException("Out of stock");
+        }
+
+        food.setReservedStock(food.getReservedStock() + item.getQuantity());
+
+        return List.of(Reservation.builder()
+                .orderId(orderId)
+                .foodId(food.getFoodId())
+                .reservationCount(item.getQuantity())
+                .status("RESERVED")
+                .reservedAt(Instant.now())
+                .build());
+    }
+
+    private List<Reservation> reserveFromSlots(Long orderId, OrderItemDto item) {
+        Long foodId = item.getFoodId();
+        int quantity = item.getQuantity();
+
+//        Fast path: one conditional UPDATE on a random slot, which only row-locks that slot.
+        int slotCount = hotItemRegistry.slotCount(foodId);
+        int firstSlot = ThreadLocalRandom.current().nextInt(Math.max(slotCount, 1));
+
+        if (foodSlotRepository.reserveFromSlot(foodId, firstSlot, quantity) == 1) {
+            return List.of(slotReservation(orderId, foodId, firstSlot, quantity));
+        }
+
+//        The slot ran dry: lock all siblings in slotNo order and borrow what is left, starting at our slot.
+        log.info("Slot {} of hot food {} ran dry, borrowing from siblings", firstSlot, foodId);
+        List<FoodSlot> slots = foodSlotRepository.lockSlotsByFoodId(foodId);
+
+//        No slots left: makeRegular has folded them back into the food row and not yet unregistered it.
+        if (slots.isEmpty()) {
+            hotItemRegistry.unregister(foodId);
+            return reserveFromFood(orderId, inventoryRepository.lockFoodById(foodId), item);
+        }
+
+        int available = slots.stream().mapToInt(slot -> slot.getStock() - slot.getReservedStock()).sum();
+        if (available < quantity) {
+            log.info("The Food product has not enough stock");
+            throw new OutOfStockException("Out of stock");
+        }
+
+        List<Reservation> reservations = new ArrayList<>();
+        int remaining = quantity;
+        for (int i = 0; i < slots.size() && remaining > 0; i++) {
+            FoodSlot slot = slots.get((firstSlot + i) % slots.size());
+            int take = Math.min(remaining, slot.getStock() - slot.getReservedStock());
+            if (take <= 0) continue;
+
+            slot.setReservedStock(slot.getReservedStock() + take);
+            reservations.add(slotReservation(orderId, foodId, slot.getSlotNo(), take));
+            remaining -= take;
+        }
+        return reservations;
+    }
+
+//    Hot foods report the food row plus all of their slots.
+    private List<Food> withSlots(List<Food> foods, List<FoodSlot> allSlots) {
+        Map<Long, List<FoodSlot>> slotsByFood = allSlots
+                .stream()
+                .collect(Collectors.groupingBy(FoodSlot::getFoodId));
+
+        return foods.stream()
+                .map(food -> {
+                    List<FoodSlot> slots = slotsByFood.get(food.getFoodId());
+                    if (slots == null) {
+                        return food;
+                    }
+
+                    return Food.builder()
+                            .foodId(food.getFoodId())
+                            .name(food.getName())
+                            .price(food.getPrice())
+                            .description(food.getDescription())
+                            .stock(food.getStock() + slots.stream().mapToInt(FoodSlot::getStock).sum())
+                            .reservedStock(food.getReservedStock() + slots.stream().mapToInt(FoodSlot::getReservedStock).sum())
+                            .build();
+                })
+                .toList();
+    }
+
+    private ReservationItem toItem(Reservation reservation) {
+        return ReservationItem.builder()
+                .foodId(reservation.getFoodId())
+                .quantity(reservation.getReservationCount())
+                .build();
+    }
+
+    private Reservation slotReservation(Long orderId, Long foodId, int slotNo, int quantity) {
+        return Reservation.builder()
+                .orderId(orderId)
+                .foodId(foodId)
+                .reservationCount(quantity)
+                .status("RESERVED")
+                .slotNo(slotNo)
+                .reservedAt(Instant.now())
+                .build();
+    }
+}
@@ -13,7 +13,8 @@ import lombok.*;
 @Table(name = "food")
 public class Food {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "food_seq")
+    @SequenceGenerator(name = "food_seq", sequenceName = "food_seq", allocationSize = 50)
     private Long foodId;
     private String name;
     private Long price;
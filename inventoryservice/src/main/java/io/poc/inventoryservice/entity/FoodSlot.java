@@ -0,0 +1,26 @@
+package io.poc.inventoryservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@ToString
+@Table(
+        name = "food_slot",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"food_id", "slot_no"})
+)
+public class FoodSlot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "food_slot_seq")
+    @SequenceGenerator(name = "food_slot_seq", sequenceName = "food_slot_seq", allocationSize = 50)
+    private Long slotId;
+    private Long foodId;
+    private int slotNo;
+    private int stock;
+    private int reservedStock;
+}
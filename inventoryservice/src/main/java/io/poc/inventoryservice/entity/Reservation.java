@@ -3,6 +3,8 @@ package io.poc.inventoryservice.entity;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.Instant;
+
 @Getter
 @Setter
 @Builder
@@ -10,13 +12,16 @@ import lombok.*;
 @NoArgsConstructor
 @Entity
 @ToString
-@Table(name = "reservation")
+@Table(name = "reservation", indexes = @Index(name = "idx_reservation_order", columnList = "order_id"))
 public class Reservation {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_seq")
+    @SequenceGenerator(name = "reservation_seq", sequenceName = "reservation_seq", allocationSize = 50)
     private Long reservationId;
     private Long orderId;
     private Long foodId;
     private int reservationCount;
     private String status;
+    private Integer slotNo;
+    private Instant reservedAt;
 }
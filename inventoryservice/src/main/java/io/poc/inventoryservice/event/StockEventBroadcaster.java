@@ -0,0 +1,77 @@
+package io.poc.inventoryservice.event;
+
+import io.poc.inventoryservice.model.FoodDto;
+import io.poc.inventoryservice.model.StockChangeEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Fans stock changes out to stream subscribers. Publishing only stores the event in each subscriber's
+// pending map, keyed by foodId, so a slow subscriber never holds up reserve/confirm/cancel: while it
+// is not keeping up, newer events for the same dish overwrite older ones and it receives the latest value.
+// Every stream opens with an event without a food: from that point on the subscriber misses nothing, so
+// a client can safely take its snapshot once it sees it.
+@Component
+public class StockEventBroadcaster {
+
+    private final Set<ConflatingSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    public void publish(long version, List<FoodDto> foods) {
+        for (ConflatingSubscriber subscriber : subscribers) {
+            subscriber.offer(version, foods);
+        }
+    }
+
+    public Flux<StockChangeEvent> stream() {
+        return Flux.<StockChangeEvent>create(sink -> {
+                    ConflatingSubscriber subscriber = new ConflatingSubscriber(sink);
+                    subscribers.add(subscriber);
+                    sink.next(new StockChangeEvent());
+                    sink.onRequest(requested -> subscriber.drain());
+                    sink.onDispose(() -> subscribers.remove(subscriber));
+                })
+//                Requests one event at a time, so anything the client has not taken yet stays conflated.
+                .publishOn(Schedulers.boundedElastic(), 1);
+    }
+
+    private static final class ConflatingSubscriber {
+
+        private final FluxSink<StockChangeEvent> sink;
+        private final Map<Long, StockChangeEvent> pending = new LinkedHashMap<>();
+
+        private ConflatingSubscriber(FluxSink<StockChangeEvent> sink) {
+            this.sink = sink;
+        }
+
+        private synchronized void offer(long version, List<FoodDto> foods) {
+            for (FoodDto food : foods) {
+                pending.put(food.getId(), StockChangeEvent.builder()
+                        .version(version)
+                        .food(food)
+                        .build());
+            }
+            drain();
+        }
+
+        private synchronized void drain() {
+            Iterator<StockChangeEvent> events = pending.values().iterator();
+            while (sink.requestedFromDownstream() > 0 && events.hasNext()) {
+                StockChangeEvent event = events.next();
+                events.remove();
+                sink.next(event);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package io.poc.inventoryservice.exception;
+
+public class FoodNotFoundException extends RuntimeException {
+
+    public FoodNotFoundException(String message) {
+        super(message);
+    }
+}
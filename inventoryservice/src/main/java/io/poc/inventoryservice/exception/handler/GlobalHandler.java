@@ -1,5 +1,6 @@
 package io.poc.inventoryservice.exception.handler;
 
+import io.poc.inventoryservice.exception.FoodNotFoundException;
 import io.poc.inventoryservice.exception.OutOfStockException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.ErrorResponse;
@@ -13,4 +14,9 @@ public class GlobalHandler {
     public ResponseEntity<ErrorResponse> outOfStockException(){
         return ResponseEntity.notFound().build();
     }
+
+    @ExceptionHandler(FoodNotFoundException.class)
+    public ResponseEntity<ErrorResponse> foodNotFoundException(){
+        return ResponseEntity.notFound().build();
+    }
 }
@@ -0,0 +1,129 @@
+package io.poc.inventoryservice.expiry;
+
+import io.poc.inventoryservice.entity.Reservation;
+import io.poc.inventoryservice.repository.ReservationRepository;
+import io.poc.inventoryservice.service.InventoryService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Releases reservations that were never confirmed or cancelled, e.g. when payment died in between.
+// Every open order sits in a timing wheel with its deadline; confirm/cancel only drop the deadline
+// and the wheel entry is discarded when it comes due. Expired orders go through InventoryService.cancelAll,
+// one transaction per batch.
+@Component
+@ConditionalOnProperty(name = "inventory.reservation.expiry.enabled", havingValue = "true", matchIfMissing = true)
+public class ReservationExpiry {
+
+    private final InventoryService inventoryService;
+    private final ReservationRepository reservationRepository;
+    private final long ttlMs;
+    private final long tickMs;
+    private final int batchSize;
+
+    private final TimingWheel<Long> wheel;
+    private final Map<Long, Long> deadlines = new HashMap<>();
+    private final List<Long> due = new ArrayList<>();
+
+    private final Logger log = LoggerFactory.getLogger(ReservationExpiry.class);
+
+    public ReservationExpiry(
+            InventoryService inventoryService,
+            ReservationRepository reservationRepository,
+            @Value("${inventory.reservation.expiry.ttl:15m}") Duration ttl,
+            @Value("${inventory.reservation.expiry.tick:1s}") Duration tick,
+            @Value("${inventory.reservation.expiry.wheel-size:64}") int wheelSize,
+            @Value("${inventory.reservation.expiry.batch-size:500}") int batchSize
+    ) {
+        this.inventoryService = inventoryService;
+        this.reservationRepository = reservationRepository;
+        this.ttlMs = ttl.toMillis();
+        this.tickMs = tick.toMillis();
+        this.batchSize = batchSize;
+        this.wheel = new TimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+        log.info("Initializing ReservationExpiry with ttl {}", ttl);
+    }
+
+//    Open reservations survive a restart in the reservation table; their TTL keeps counting from reservedAt.
+    @PostConstruct
+    public void rebuild() {
+        Map<Long, Instant> oldestByOrder = reservationRepository.findByStatus("RESERVED")
+                .stream()
+                .collect(Collectors.toMap(
+                        Reservation::getOrderId,
+                        reservation -> reservation.getReservedAt() == null ? Instant.now() : reservation.getReservedAt(),
+                        (a, b) -> a.isBefore(b) ? a : b));
+
+        synchronized (this) {
+            oldestByOrder.forEach((orderId, reservedAt) -> schedule(orderId, reservedAt.toEpochMilli() + ttlMs));
+        }
+        log.info("Tracking {} open orders for expiry", oldestByOrder.size());
+    }
+
+    public synchronized void track(Long orderId) {
+        if (!deadlines.containsKey(orderId)) {
+            schedule(orderId, System.currentTimeMillis() + ttlMs);
+        }
+    }
+
+    public synchronized void forget(Collection<Long> orderIds) {
+        orderIds.forEach(deadlines::remove);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.reservation.expiry.tick:1s}")
+    public void expire() {
+        List<Long> expired = poll(System.currentTimeMillis());
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        log.info("Expiring {} reservations", expired.size());
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            List<Long> batch = expired.subList(from, Math.min(from + batchSize, expired.size()));
+            try {
+                inventoryService.cancelAll(batch);
+            } catch (RuntimeException e) {
+                log.error("Expiring {} reservations failed, retrying next tick", batch.size(), e);
+                synchronized (this) {
+                    batch.forEach(orderId -> schedule(orderId, System.currentTimeMillis() + tickMs));
+                }
+            }
+        }
+    }
+
+    private synchronized List<Long> poll(long now) {
+        List<Long> expired = new ArrayList<>();
+        for (Long orderId : due) {
+            if (deadlines.remove(orderId) != null) {
+                expired.add(orderId);
+            }
+        }
+        due.clear();
+
+        wheel.advance(now, orderId -> {
+//            Entries of settled orders, or superseded by a later deadline, are dropped here.
+            Long deadline = deadlines.get(orderId);
+            if (deadline != null && deadline < now + tickMs) {
+                deadlines.remove(orderId);
+                expired.add(orderId);
+            }
+        });
+        return expired;
+    }
+
+    private void schedule(Long orderId, long deadline) {
+        deadlines.put(orderId, deadline);
+        if (!wheel.add(deadline, orderId)) {
+            due.add(orderId);
+        }
+    }
+}
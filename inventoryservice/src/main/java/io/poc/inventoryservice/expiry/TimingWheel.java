@@ -0,0 +1,86 @@
+package io.poc.inventoryservice.expiry;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel: O(1) add, and advancing the clock only touches the buckets that came due.
+// Each level covers wheelSize ticks of the level below; a timer too far out goes into an overflow
+// level and cascades down as the clock reaches its bucket. Timers fire at most one tick early.
+// Not thread safe, callers synchronise.
+public class TimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long interval;
+    private final ArrayDeque<Timer<T>>[] buckets;
+
+    private long currentTime;
+    private TimingWheel<T> overflowWheel;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.interval = tickMs * wheelSize;
+        this.buckets = new ArrayDeque[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.currentTime = startMs - (startMs % tickMs);
+    }
+
+    // Returns false when the timer is already due, it is then not added.
+    public boolean add(long expiresAt, T item) {
+        return add(new Timer<>(expiresAt, item));
+    }
+
+    // Moves the clock to now and hands every timer that came due to the consumer.
+    public void advance(long now, Consumer<T> expired) {
+        tick(now, timer -> {
+            if (!add(timer)) {
+                expired.accept(timer.item());
+            }
+        });
+    }
+
+    private boolean add(Timer<T> timer) {
+        if (timer.expiresAt() < currentTime + tickMs) {
+            return false;
+        }
+
+        if (timer.expiresAt() < currentTime + interval) {
+            buckets[index(timer.expiresAt())].add(timer);
+            return true;
+        }
+
+        if (overflowWheel == null) {
+            overflowWheel = new TimingWheel<>(interval, wheelSize, currentTime);
+        }
+        return overflowWheel.add(timer);
+    }
+
+    // Flushed timers go back through the root wheel's add, which either files them one level lower
+    // or reports them as due.
+    private void tick(long now, Consumer<Timer<T>> flush) {
+        while (currentTime + tickMs <= now) {
+            currentTime += tickMs;
+
+            if (overflowWheel != null) {
+                overflowWheel.tick(currentTime, flush);
+            }
+
+            ArrayDeque<Timer<T>> bucket = buckets[index(currentTime)];
+            Timer<T> timer;
+            while ((timer = bucket.poll()) != null) {
+                flush.accept(timer);
+            }
+        }
+    }
+
+    private int index(long time) {
+        return (int) ((time / tickMs) % wheelSize);
+    }
+
+    private record Timer<T>(long expiresAt, T item) {
+    }
+}
@@ -0,0 +1,52 @@
+package io.poc.inventoryservice.hotitem;
+
+import io.poc.inventoryservice.entity.FoodSlot;
+import io.poc.inventoryservice.repository.FoodSlotRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Which foods currently keep their stock in food_slot rows, and how many slots each one has.
+// Lets reserve() route hot dishes to their slots without touching the food row first.
+@Component
+@ConditionalOnProperty(name = "inventory.reservation.engine", havingValue = "locking", matchIfMissing = true)
+public class HotItemRegistry {
+
+    private final FoodSlotRepository foodSlotRepository;
+    private final Map<Long, Integer> slotCounts = new ConcurrentHashMap<>();
+
+    private final Logger log = LoggerFactory.getLogger(HotItemRegistry.class);
+
+    public HotItemRegistry(FoodSlotRepository foodSlotRepository) {
+        this.foodSlotRepository = foodSlotRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        for (FoodSlot slot : foodSlotRepository.getAllSlots()) {
+            slotCounts.merge(slot.getFoodId(), 1, Integer::sum);
+        }
+        log.info("Loaded {} hot items", slotCounts.size());
+    }
+
+    public boolean isHot(Long foodId) {
+        return slotCounts.containsKey(foodId);
+    }
+
+    public int slotCount(Long foodId) {
+        return slotCounts.getOrDefault(foodId, 0);
+    }
+
+    public void register(Long foodId, int slots) {
+        slotCounts.put(foodId, slots);
+    }
+
+    public void unregister(Long foodId) {
+        slotCounts.remove(foodId);
+    }
+}
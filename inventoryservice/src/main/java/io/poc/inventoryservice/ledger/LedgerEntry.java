@@ -0,0 +1,17 @@
+package io.poc.inventoryservice.ledger;
+
+import io.poc.inventoryservice.model.ReservationItem;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+// A reservation change that still has to be written to the reservation table.
+// Entries with items are new RESERVED rows, entries with a status close the order's open rows.
+@Getter
+@Builder
+public class LedgerEntry {
+    private Long orderId;
+    private List<ReservationItem> items;
+    private String status;
+}
@@ -0,0 +1,104 @@
+package io.poc.inventoryservice.ledger;
+
+import io.poc.inventoryservice.entity.Food;
+import io.poc.inventoryservice.entity.Reservation;
+import io.poc.inventoryservice.model.ReservationItem;
+import io.poc.inventoryservice.repository.ReservationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Write-behind for the stock ledger: every flush writes the queued reservation rows and the latest
+// counters of the touched foods in one transaction, each as a single JDBC batch.
+// Changes acknowledged since the last flush are lost if the process dies before it runs.
+@Component
+@ConditionalOnProperty(name = "inventory.reservation.engine", havingValue = "ledger")
+public class LedgerWriter {
+
+    private static final String CLOSE_RESERVATIONS =
+            "UPDATE reservation SET status = ? WHERE order_id = ? AND status = 'RESERVED'";
+    private static final String UPDATE_FOOD =
+            "UPDATE food SET stock = ?, reserved_stock = ? WHERE food_id = ?";
+
+    private final StockLedger stockLedger;
+    private final ReservationRepository reservationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Logger log = LoggerFactory.getLogger(LedgerWriter.class);
+
+    public LedgerWriter(
+            StockLedger stockLedger,
+            ReservationRepository reservationRepository,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate
+    ) {
+        this.stockLedger = stockLedger;
+        this.reservationRepository = reservationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        log.info("Initializing LedgerWriter");
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.ledger.flush-interval-ms:50}")
+    public void flush() {
+        List<LedgerEntry> entries = stockLedger.drainEntries();
+        List<Food> foods = stockLedger.drainDirtyFood();
+
+        if (entries.isEmpty() && foods.isEmpty()) {
+            return;
+        }
+
+        Instant reservedAt = Instant.now();
+        List<Reservation> inserts = new ArrayList<>();
+        List<Object[]> statusUpdates = new ArrayList<>();
+        for (LedgerEntry entry : entries) {
+            if (entry.getItems() != null) {
+                for (ReservationItem item : entry.getItems()) {
+                    inserts.add(Reservation.builder()
+                            .orderId(entry.getOrderId())
+                            .foodId(item.getFoodId())
+                            .reservationCount(item.getQuantity())
+                            .status("RESERVED")
+                            .reservedAt(reservedAt)
+                            .build());
+                }
+            } else {
+                statusUpdates.add(new Object[]{entry.getStatus(), entry.getOrderId()});
+            }
+        }
+
+        List<Object[]> foodUpdates = foods.stream()
+                .map(food -> new Object[]{food.getStock(), food.getReservedStock(), food.getFoodId()})
+                .toList();
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+//                Flushed first: the status updates below may close rows inserted in this same run.
+                reservationRepository.saveAllAndFlush(inserts);
+                jdbcTemplate.batchUpdate(CLOSE_RESERVATIONS, statusUpdates);
+                jdbcTemplate.batchUpdate(UPDATE_FOOD, foodUpdates);
+            });
+            log.debug("Flushed {} reservation rows, {} status changes, {} foods",
+                    inserts.size(), statusUpdates.size(), foodUpdates.size());
+        } catch (RuntimeException e) {
+            log.error("Stock ledger flush failed, retrying on next run", e);
+            stockLedger.requeue(entries, foods);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Flushing stock ledger before shutdown");
+        flush();
+    }
+}
@@ -0,0 +1,218 @@
+package io.poc.inventoryservice.ledger;
+
+import io.poc.inventoryservice.entity.Food;
+import io.poc.inventoryservice.entity.Reservation;
+import io.poc.inventoryservice.exception.OutOfStockException;
+import io.poc.inventoryservice.model.OrderItemDto;
+import io.poc.inventoryservice.model.ReservationItem;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory stock/reservedStock per food. Each food owns one atomic cell holding both counters
+// (stock in the high 32 bits, reservedStock in the low 32 bits), so a reservation is a single CAS
+// on that food and never waits on other dishes or on the database.
+@Component
+@ConditionalOnProperty(name = "inventory.reservation.engine", havingValue = "ledger")
+public class StockLedger {
+
+    private final Map<Long, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final Map<Long, List<ReservationItem>> openReservations = new ConcurrentHashMap<>();
+
+    private final Set<Long> dirtyFood = ConcurrentHashMap.newKeySet();
+    private final Deque<LedgerEntry> pendingEntries = new ConcurrentLinkedDeque<>();
+
+    public void load(List<Food> foods, List<Reservation> openRows) {
+        counters.clear();
+        openReservations.clear();
+
+        Map<Long, Integer> reservedByFood = new HashMap<>();
+        for (Reservation row : openRows) {
+            reservedByFood.merge(row.getFoodId(), row.getReservationCount(), Integer::sum);
+            openReservations.computeIfAbsent(row.getOrderId(), orderId -> new ArrayList<>())
+                    .add(ReservationItem.builder()
+                            .foodId(row.getFoodId())
+                            .quantity(row.getReservationCount())
+                            .build());
+        }
+
+//        The open reservation rows are the source of truth for held stock; rows that drifted are rewritten.
+        for (Food food : foods) {
+            int reserved = reservedByFood.getOrDefault(food.getFoodId(), 0);
+            counters.put(food.getFoodId(), new AtomicLong(pack(food.getStock(), reserved)));
+
+            if (reserved != food.getReservedStock()) {
+                dirtyFood.add(food.getFoodId());
+            }
+        }
+    }
+
+    public boolean contains(Long foodId) {
+        return counters.containsKey(foodId);
+    }
+
+    public void track(Food food) {
+        counters.putIfAbsent(food.getFoodId(), new AtomicLong(pack(food.getStock(), food.getReservedStock())));
+    }
+
+    public Food current(Food food) {
+        AtomicLong counter = counters.get(food.getFoodId());
+        if (counter == null) {
+            return food;
+        }
+
+        long value = counter.get();
+        return Food.builder()
+                .foodId(food.getFoodId())
+                .name(food.getName())
+                .price(food.getPrice())
+                .description(food.getDescription())
+                .stock(stock(value))
+                .reservedStock(reserved(value))
+                .build();
+    }
+
+    public List<ReservationItem> reserve(Long orderId, List<OrderItemDto> items) {
+
+        List<ReservationItem> existing = openReservations.get(orderId);
+        if (existing != null) {
+            return existing;
+        }
+
+        List<ReservationItem> taken = new ArrayList<>(items.size());
+        for (OrderItemDto item : items) {
+            AtomicLong counter = counters.get(item.getFoodId());
+
+            if (counter == null || !tryReserve(counter, item.getQuantity())) {
+                release(taken);
+                throw new OutOfStockException("Out of stock");
+            }
+
+            taken.add(ReservationItem.builder()
+                    .foodId(item.getFoodId())
+                    .quantity(item.getQuantity())
+                    .build());
+        }
+
+//        A concurrent retry of the same order may have won the race; keep its reservation and undo ours.
+        List<ReservationItem> winner = openReservations.putIfAbsent(orderId, taken);
+        if (winner != null) {
+            release(taken);
+            return winner;
+        }
+
+        taken.forEach(item -> dirtyFood.add(item.getFoodId()));
+        pendingEntries.add(LedgerEntry.builder()
+                .orderId(orderId)
+                .items(taken)
+                .build());
+        return taken;
+    }
+
+    public List<ReservationItem> confirm(Long orderId) {
+        List<ReservationItem> items = openReservations.remove(orderId);
+        if (items == null) {
+            return List.of();
+        }
+
+        for (ReservationItem item : items) {
+            int quantity = item.getQuantity();
+            counters.get(item.getFoodId())
+                    .getAndUpdate(value -> pack(stock(value) - quantity, reserved(value) - quantity));
+            dirtyFood.add(item.getFoodId());
+        }
+
+        pendingEntries.add(LedgerEntry.builder()
+                .orderId(orderId)
+                .status("CONFIRMED")
+                .build());
+        return items;
+    }
+
+    public List<ReservationItem> cancel(Long orderId) {
+        List<ReservationItem> items = openReservations.remove(orderId);
+        if (items == null) {
+            return List.of();
+        }
+
+        release(items);
+        items.forEach(item -> dirtyFood.add(item.getFoodId()));
+
+        pendingEntries.add(LedgerEntry.builder()
+                .orderId(orderId)
+                .status("CANCELLED")
+                .build());
+        return items;
+    }
+
+    public List<LedgerEntry> drainEntries() {
+        List<LedgerEntry> entries = new ArrayList<>();
+        LedgerEntry entry;
+        while ((entry = pendingEntries.pollFirst()) != null) {
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    public List<Food> drainDirtyFood() {
+        List<Food> foods = new ArrayList<>();
+        for (Iterator<Long> it = dirtyFood.iterator(); it.hasNext(); ) {
+            Long foodId = it.next();
+            it.remove();
+
+            long value = counters.get(foodId).get();
+            foods.add(Food.builder()
+                    .foodId(foodId)
+                    .stock(stock(value))
+                    .reservedStock(reserved(value))
+                    .build());
+        }
+        return foods;
+    }
+
+    public void requeue(List<LedgerEntry> entries, List<Food> foods) {
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            pendingEntries.addFirst(entries.get(i));
+        }
+        foods.forEach(food -> dirtyFood.add(food.getFoodId()));
+    }
+
+    private void release(List<ReservationItem> items) {
+        for (ReservationItem item : items) {
+            int quantity = item.getQuantity();
+            counters.get(item.getFoodId())
+                    .getAndUpdate(value -> pack(stock(value), reserved(value) - quantity));
+        }
+    }
+
+    private static boolean tryReserve(AtomicLong counter, int quantity) {
+        while (true) {
+            long value = counter.get();
+            int stock = stock(value);
+            int reserved = reserved(value);
+
+            if (stock - reserved < quantity) {
+                return false;
+            }
+            if (counter.compareAndSet(value, pack(stock, reserved + quantity))) {
+                return true;
+            }
+        }
+    }
+
+    private static long pack(int stock, int reserved) {
+        return ((long) stock << 32) | (reserved & 0xFFFFFFFFL);
+    }
+
+    private static int stock(long value) {
+        return (int) (value >> 32);
+    }
+
+    private static int reserved(long value) {
+        return (int) value;
+    }
+}
@@ -0,0 +1,17 @@
+package io.poc.inventoryservice.model;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class MenuDelta {
+    private long version;
+    private boolean full;
+    private List<FoodDto> items;
+}
@@ -0,0 +1,15 @@
+package io.poc.inventoryservice.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@Builder
+public class MenuSnapshot {
+    private long version;
+    private String etag;
+    private List<FoodDto> items;
+    private byte[] payload;
+}
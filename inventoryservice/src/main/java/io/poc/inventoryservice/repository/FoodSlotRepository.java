@@ -0,0 +1,31 @@
+package io.poc.inventoryservice.repository;
+
+import io.poc.inventoryservice.entity.FoodSlot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface FoodSlotRepository extends JpaRepository<FoodSlot, Long> {
+
+    @Query("SELECT s FROM FoodSlot s")
+    List<FoodSlot> getAllSlots();
+
+    List<FoodSlot> findByFoodIdIn(Collection<Long> foodIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM FoodSlot s WHERE s.foodId = :foodId ORDER BY s.slotNo")
+    List<FoodSlot> lockSlotsByFoodId(@Param("foodId") Long foodId);
+
+    @Modifying
+    @Query("UPDATE FoodSlot s SET s.reservedStock = s.reservedStock + :quantity " +
+            "WHERE s.foodId = :foodId AND s.slotNo = :slotNo AND s.stock - s.reservedStock >= :quantity")
+    int reserveFromSlot(@Param("foodId") Long foodId, @Param("slotNo") int slotNo, @Param("quantity") int quantity);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -21,4 +22,8 @@ public interface InventoryRepository extends JpaRepository<Food, Long> {
     @Query("SELECT f FROM Food f WHERE f.foodId = :id")
     Food lockFoodById(@Param("id") Long id);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM Food f WHERE f.foodId IN :ids ORDER BY f.foodId")
+    List<Food> lockAllByIdOrdered(@Param("ids") Collection<Long> ids);
+
 }
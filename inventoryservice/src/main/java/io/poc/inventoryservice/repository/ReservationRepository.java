@@ -1,9 +1,15 @@
 package io.poc.inventoryservice.repository;
 
 import io.poc.inventoryservice.entity.Reservation;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +19,14 @@ public interface ReservationRepository extends JpaRepository<Reservation, Intege
     List<Reservation> getByOrderId(Long orderId);
 
     Optional<Reservation> findByOrderIdAndFoodId(Long orderId, Long foodId);
+
+    List<Reservation> findByStatus(String status);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reservation r WHERE r.orderId IN :orderIds AND r.status = 'RESERVED' ORDER BY r.reservationId")
+    List<Reservation> lockOpenByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+    @Modifying
+    @Query("UPDATE Reservation r SET r.slotNo = NULL WHERE r.foodId = :foodId AND r.status = 'RESERVED'")
+    int detachFromSlots(@Param("foodId") Long foodId);
 }
@@ -0,0 +1,86 @@
+package io.poc.inventoryservice.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+// Set-based confirm/cancel: every statement covers all orders of a batch at once. The stock
+// adjustments read the open reservation rows themselves, so they must run before closeReservations.
+// Slot updates only touch slots the batch actually drew from, leaving sibling slots unlocked.
+@Repository
+public class ReservationSettlementRepository {
+
+    private static final String FOOD_TOTAL =
+            "(SELECT COALESCE(SUM(r.reservation_count), 0) FROM reservation r " +
+            "WHERE r.food_id = food.food_id AND r.slot_no IS NULL " +
+            "AND r.order_id IN (:orderIds) AND r.status = 'RESERVED')";
+
+    private static final String SLOT_TOTAL =
+            "(SELECT COALESCE(SUM(r.reservation_count), 0) FROM reservation r " +
+            "WHERE r.food_id = food_slot.food_id AND r.slot_no = food_slot.slot_no " +
+            "AND r.order_id IN (:orderIds) AND r.status = 'RESERVED')";
+
+    private static final String SLOT_REFERENCED =
+            "EXISTS (SELECT 1 FROM reservation r " +
+            "WHERE r.food_id = food_slot.food_id AND r.slot_no = food_slot.slot_no " +
+            "AND r.order_id IN (:orderIds) AND r.status = 'RESERVED')";
+
+    private static final String LOCK_FOOD =
+            "SELECT food_id FROM food WHERE food_id IN (:foodIds) ORDER BY food_id FOR UPDATE";
+
+    private static final String CONFIRM_FOOD =
+            "UPDATE food SET stock = stock - " + FOOD_TOTAL + ", reserved_stock = reserved_stock - " + FOOD_TOTAL +
+            " WHERE food_id IN (:foodIds)";
+
+    private static final String CANCEL_FOOD =
+            "UPDATE food SET reserved_stock = reserved_stock - " + FOOD_TOTAL +
+            " WHERE food_id IN (:foodIds)";
+
+    private static final String CONFIRM_SLOTS =
+            "UPDATE food_slot SET stock = stock - " + SLOT_TOTAL + ", reserved_stock = reserved_stock - " + SLOT_TOTAL +
+            " WHERE food_id IN (:foodIds) AND " + SLOT_REFERENCED;
+
+    private static final String CANCEL_SLOTS =
+            "UPDATE food_slot SET reserved_stock = reserved_stock - " + SLOT_TOTAL +
+            " WHERE food_id IN (:foodIds) AND " + SLOT_REFERENCED;
+
+    private static final String CLOSE_RESERVATIONS =
+            "UPDATE reservation SET status = :status WHERE order_id IN (:orderIds) AND status = 'RESERVED'";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ReservationSettlementRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<Long> lockFood(Collection<Long> foodIds) {
+        return jdbcTemplate.queryForList(LOCK_FOOD, new MapSqlParameterSource("foodIds", foodIds), Long.class);
+    }
+
+    public void confirmStock(Collection<Long> orderIds, Collection<Long> foodIds) {
+        MapSqlParameterSource params = params(orderIds, foodIds);
+        jdbcTemplate.update(CONFIRM_FOOD, params);
+        jdbcTemplate.update(CONFIRM_SLOTS, params);
+    }
+
+    public void releaseStock(Collection<Long> orderIds, Collection<Long> foodIds) {
+        MapSqlParameterSource params = params(orderIds, foodIds);
+        jdbcTemplate.update(CANCEL_FOOD, params);
+        jdbcTemplate.update(CANCEL_SLOTS, params);
+    }
+
+    public int closeReservations(Collection<Long> orderIds, String status) {
+        return jdbcTemplate.update(CLOSE_RESERVATIONS, new MapSqlParameterSource()
+                .addValue("orderIds", orderIds)
+                .addValue("status", status));
+    }
+
+    private MapSqlParameterSource params(Collection<Long> orderIds, Collection<Long> foodIds) {
+        return new MapSqlParameterSource()
+                .addValue("orderIds", orderIds)
+                .addValue("foodIds", foodIds);
+    }
+}
@@ -0,0 +1,8 @@
+package io.poc.inventoryservice.service;
+
+public interface HotItemService {
+
+    void makeHot(Long foodId, int slots);
+
+    void makeRegular(Long foodId);
+}
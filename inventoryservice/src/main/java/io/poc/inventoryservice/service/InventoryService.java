@@ -1,9 +1,13 @@
 package io.poc.inventoryservice.service;
 
 import io.poc.inventoryservice.model.FoodDto;
+import io.poc.inventoryservice.model.MenuDelta;
+import io.poc.inventoryservice.model.MenuSnapshot;
 import io.poc.inventoryservice.model.OrderDto;
 import io.poc.inventoryservice.model.ReservationDto;
 import io.poc.inventoryservice.model.ReservationResult;
+import io.poc.inventoryservice.model.StockChangeEvent;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
@@ -12,10 +16,22 @@ public interface InventoryService {
 
     List<FoodDto> getMenu();
 
+    MenuSnapshot getMenuSnapshot();
+
+    MenuDelta getMenuChanges(long sinceVersion);
+
+    Flux<StockChangeEvent> stockChanges();
+
     Mono<ReservationResult> reserve(OrderDto order);
 
+    Mono<List<ReservationResult>> reserveAll(List<OrderDto> orders);
+
     Mono<Void> confirm(Long orderId);
 
     Mono<Void> cancel(Long orderId);
+
+    Mono<Void> confirmAll(List<Long> orderIds);
+
+    Mono<Void> cancelAll(List<Long> orderIds);
 }
 
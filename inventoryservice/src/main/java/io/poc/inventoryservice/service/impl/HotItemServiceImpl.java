@@ -0,0 +1,114 @@
+package io.poc.inventoryservice.service.impl;
+
+import io.poc.inventoryservice.entity.Food;
+import io.poc.inventoryservice.entity.FoodSlot;
+import io.poc.inventoryservice.exception.FoodNotFoundException;
+import io.poc.inventoryservice.hotitem.HotItemRegistry;
+import io.poc.inventoryservice.repository.FoodSlotRepository;
+import io.poc.inventoryservice.repository.InventoryRepository;
+import io.poc.inventoryservice.repository.ReservationRepository;
+import io.poc.inventoryservice.service.HotItemService;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "inventory.reservation.engine", havingValue = "locking", matchIfMissing = true)
+public class HotItemServiceImpl implements HotItemService {
+
+    private final InventoryRepository inventoryRepository;
+    private final FoodSlotRepository foodSlotRepository;
+    private final ReservationRepository reservationRepository;
+    private final HotItemRegistry hotItemRegistry;
+
+    private final Logger log = LoggerFactory.getLogger(HotItemServiceImpl.class);
+
+    public HotItemServiceImpl(
+            InventoryRepository inventoryRepository,
+            FoodSlotRepository foodSlotRepository,
+            ReservationRepository reservationRepository,
+            HotItemRegistry hotItemRegistry
+    ) {
+        this.inventoryRepository = inventoryRepository;
+        this.foodSlotRepository = foodSlotRepository;
+        this.reservationRepository = reservationRepository;
+        this.hotItemRegistry = hotItemRegistry;
+        log.info("Initializing HotItemServiceImpl");
+    }
+
+    @Override
+    @Transactional
+    public void makeHot(Long foodId, int slots) {
+        log.info("Entering HotItemServiceImpl::makeHot() food: {}, slots: {}", foodId, slots);
+
+        Food food = inventoryRepository.lockFoodById(foodId);
+        if (food == null) {
+            throw new FoodNotFoundException("Food not found");
+        }
+        if (!foodSlotRepository.lockSlotsByFoodId(foodId).isEmpty()) {
+            log.info("Food {} is already a hot item", foodId);
+            return;
+        }
+
+//        Stock already held by open reservations stays on the food row so their confirm/cancel still
+//        finds it there; only the sellable stock is spread across the slots.
+        int available = food.getStock() - food.getReservedStock();
+        food.setStock(food.getReservedStock());
+
+        List<FoodSlot> foodSlots = new ArrayList<>(slots);
+        for (int slotNo = 0; slotNo < slots; slotNo++) {
+            foodSlots.add(FoodSlot.builder()
+                    .foodId(foodId)
+                    .slotNo(slotNo)
+                    .stock(available / slots + (slotNo < available % slots ? 1 : 0))
+                    .build());
+        }
+        foodSlotRepository.saveAll(foodSlots);
+
+//        Registered after commit so no reserve is routed to slots it cannot see yet. Until then reserve still
+//        goes to the food row, finds the slots under its lock and switches over; see LockingReservationEngine.
+        afterCommit(() -> hotItemRegistry.register(foodId, slots));
+        log.info("Exiting HotItemServiceImpl::makeHot()");
+    }
+
+    @Override
+    @Transactional
+    public void makeRegular(Long foodId) {
+        log.info("Entering HotItemServiceImpl::makeRegular() food: {}", foodId);
+
+        Food food = inventoryRepository.lockFoodById(foodId);
+        if (food == null) {
+            throw new FoodNotFoundException("Food not found");
+        }
+
+        List<FoodSlot> foodSlots = foodSlotRepository.lockSlotsByFoodId(foodId);
+        for (FoodSlot slot : foodSlots) {
+            food.setStock(food.getStock() + slot.getStock());
+            food.setReservedStock(food.getReservedStock() + slot.getReservedStock());
+        }
+        foodSlotRepository.deleteAll(foodSlots);
+
+//        Open reservations drawn from the slots are settled against the food row from now on.
+        reservationRepository.detachFromSlots(foodId);
+
+//        Likewise a reserve routed to the deleted slots finds none and falls back to the food row.
+        afterCommit(() -> hotItemRegistry.unregister(foodId));
+        log.info("Exiting HotItemServiceImpl::makeRegular()");
+    }
+
+    private void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
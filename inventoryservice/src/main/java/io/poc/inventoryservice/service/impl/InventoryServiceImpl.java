@@ -1,162 +1,184 @@
 package io.poc.inventoryservice.service.impl;
 
-import io.poc.inventoryservice.entity.Food;
-import io.poc.inventoryservice.entity.Reservation;
+import io.poc.inventoryservice.cache.MenuCache;
+import io.poc.inventoryservice.cache.ReservationResultCache;
+import io.poc.inventoryservice.engine.ReservationEngine;
+import io.poc.inventoryservice.event.StockEventBroadcaster;
 import io.poc.inventoryservice.exception.OutOfStockException;
+import io.poc.inventoryservice.expiry.ReservationExpiry;
 import io.poc.inventoryservice.model.*;
-import io.poc.inventoryservice.repository.InventoryRepository;
-import io.poc.inventoryservice.repository.ReservationRepository;
 import io.poc.inventoryservice.service.InventoryService;
-import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 public class InventoryServiceImpl implements InventoryService {
 
-    private final InventoryRepository inventoryRepository;
-    private final ReservationRepository reservationRepository;
+    private final ReservationEngine reservationEngine;
+    private final MenuCache menuCache;
+    private final ReservationResultCache reservationResultCache;
+    private final StockEventBroadcaster stockEventBroadcaster;
+    private final ObjectProvider<ReservationExpiry> reservationExpiry;
 
     private final Logger log = LoggerFactory.getLogger(InventoryServiceImpl.class);
 
     public InventoryServiceImpl(
-            InventoryRepository inventoryRepository,
-            ReservationRepository reservationRepository
+            ReservationEngine reservationEngine,
+            MenuCache menuCache,
+            ReservationResultCache reservationResultCache,
+            StockEventBroadcaster stockEventBroadcaster,
+            ObjectProvider<ReservationExpiry> reservationExpiry
     ) {
-        this.inventoryRepository = inventoryRepository;
-        this.reservationRepository =  reservationRepository;
-        log.info("Initializing InventoryServiceImpl");
+        this.reservationEngine = reservationEngine;
+        this.menuCache = menuCache;
+        this.reservationResultCache = reservationResultCache;
+        this.stockEventBroadcaster = stockEventBroadcaster;
+        this.reservationExpiry = reservationExpiry;
+        log.info("Initializing InventoryServiceImpl with {}", reservationEngine.getClass().getSimpleName());
     }
 
     @Override
     public List<FoodDto> getMenu() {
         log.info("Entering InventoryController::getMenu()");
-        return inventoryRepository.getAllFood()
-                .stream()
-                .map(food -> FoodDto.builder()
-                        .id(food.getFoodId())
-                        .name(food.getName())
-                        .price(food.getPrice())
-                        .description(food.getDescription())
-                        .stock(food.getStock())
-                        .build()
-                )
-                .peek(food -> log.info(food.toString()))
-                .collect(Collectors.toList());
+        return menuCache.current().getItems();
     }
 
-    @Transactional
     @Override
-    public Mono<ReservationResult> reserve(OrderDto order) {
-        log.info("Entering InventoryController::reserve()");
-
-        List<OrderItemDto> items = order.getItems();
-        items.sort(Comparator.comparing(OrderItemDto::getFoodId));
-
-        List<ReservationItem> reservedItems = new ArrayList<>();
+    public MenuSnapshot getMenuSnapshot() {
+        return menuCache.current();
+    }
 
-        for (OrderItemDto item : items) {
+    @Override
+    public MenuDelta getMenuChanges(long sinceVersion) {
+        return menuCache.changesSince(sinceVersion);
+    }
 
-            log.info("Setting reservation for food: {}", item.getFoodId());
-            Food food = inventoryRepository.lockFoodById(item.getFoodId());
+    @Override
+    public Flux<StockChangeEvent> stockChanges() {
+        return stockEventBroadcaster.stream();
+    }
 
-            Optional<Reservation> existing =
-                    reservationRepository.findByOrderIdAndFoodId(order.getOrderId(), food.getFoodId());
+    @Override
+    public Mono<ReservationResult> reserve(OrderDto order) {
+        log.info("Entering InventoryController::reserve()");
 
-            if(existing.isPresent()) {
-                reservedItems.add(
-                        ReservationItem.builder()
-                                .foodId(food.getFoodId())
-                                .quantity(item.getQuantity())
-                                .build()
-                );
-                continue;
-            }
+        ReservationResult result = reserveOne(order);
 
-            int availableStock = food.getStock() - food.getReservedStock();
+        log.info("Exiting InventoryController::reserve()");
+        return Mono.just(result);
+    }
 
-            if (availableStock < item.getQuantity()) {
-                log.info("The Food product has not enough stock");
-                throw new OutOfStockException("Out of stock");
+    @Override
+    public Mono<List<ReservationResult>> reserveAll(List<OrderDto> orders) {
+        log.info("Entering InventoryController::reserveAll() for {} orders", orders.size());
+
+//        Each order still reserves in its own transaction, so one order out of stock fails only itself.
+        List<ReservationResult> results = new ArrayList<>(orders.size());
+        for (OrderDto order : orders) {
+            try {
+                results.add(reserveOne(order));
+            } catch (OutOfStockException e) {
+                log.info("Order {} could not be reserved: {}", order.getOrderId(), e.getMessage());
+                results.add(ReservationResult.builder()
+                        .orderId(order.getOrderId())
+                        .reservationItems(List.of())
+                        .reservationStatus("OUT_OF_STOCK")
+                        .build());
             }
-
-            Reservation reservation = Reservation.builder()
-                    .orderId(order.getOrderId())
-                    .foodId(food.getFoodId())
-                    .reservationCount(item.getQuantity())
-                    .status("RESERVED")
-                    .build();
-                    reservationRepository.save(reservation);
-
-            food.setReservedStock(food.getReservedStock() + item.getQuantity());
-
-            reservedItems.add(ReservationItem.builder()
-                    .foodId(food.getFoodId())
-                    .quantity(item.getQuantity())
-                    .build());
         }
 
-        log.info("Exiting InventoryController::reserve()");
-        return Mono.just(ReservationResult.builder()
-                .orderId(order.getOrderId())
-                .reservationItems(reservedItems)
-                .reservationStatus("RESERVED")
-                .build());
-
+        log.info("Exiting InventoryController::reserveAll()");
+        return Mono.just(results);
     }
 
     @Override
-    @Transactional
     public Mono<Void> confirm(Long orderId) {
         log.info("Entering InventoryController::confirm()");
 
-        List<Reservation> reservations = reservationRepository.getByOrderId(orderId);
+        reservationExpiry.ifAvailable(expiry -> expiry.forget(List.of(orderId)));
+        stockChanged(reservationEngine.confirm(orderId));
 
-        for(Reservation reservation : reservations) {
+//        Only after the transition: a reserve retry racing it would otherwise cache the RESERVED result again.
+        reservationResultCache.invalidate(orderId);
 
-            if (reservation.getStatus().equals("CONFIRMED")) continue;
-            if (reservation.getStatus().equals("CANCELLED")) continue;
+        log.info("Exiting InventoryController::confirm()");
+        return Mono.empty();
+    }
 
-            log.info("Confirming reservation...");
-            Food food = inventoryRepository.lockFoodById(reservation.getFoodId());
-            food.setStock(food.getStock() - reservation.getReservationCount());
+    @Override
+    public Mono<Void> cancel(Long orderId) {
+        log.info("Entering InventoryController::cancel()");
 
-            reservation.setStatus("CONFIRMED");
-        }
+        reservationExpiry.ifAvailable(expiry -> expiry.forget(List.of(orderId)));
+        stockChanged(reservationEngine.cancel(orderId));
+        reservationResultCache.invalidate(orderId);
 
-        log.info("Exiting InventoryController::confirm()");
+        log.info("Exiting InventoryController::cancel()");
         return Mono.empty();
     }
 
     @Override
-    @Transactional
-    public Mono<Void> cancel(Long orderId) {
-    log.info("Entering InventoryController::cancel()");
+    public Mono<Void> confirmAll(List<Long> orderIds) {
+        log.info("Entering InventoryController::confirmAll() for {} orders", orderIds.size());
 
-        List<Reservation> reservations = reservationRepository.getByOrderId(orderId);
+        reservationExpiry.ifAvailable(expiry -> expiry.forget(orderIds));
+        stockChanged(reservationEngine.confirmAll(orderIds));
+        orderIds.forEach(reservationResultCache::invalidate);
 
-        for(Reservation reservation : reservations) {
+        log.info("Exiting InventoryController::confirmAll()");
+        return Mono.empty();
+    }
 
-            if(!reservation.getStatus().equalsIgnoreCase("RESERVED")) continue;
+    @Override
+    public Mono<Void> cancelAll(List<Long> orderIds) {
+        log.info("Entering InventoryController::cancelAll() for {} orders", orderIds.size());
 
-            Food food = inventoryRepository.lockFoodById(reservation.getFoodId());
-            food.setReservedStock(food.getReservedStock() - reservation.getReservationCount());
+        reservationExpiry.ifAvailable(expiry -> expiry.forget(orderIds));
+        stockChanged(reservationEngine.cancelAll(orderIds));
+        orderIds.forEach(reservationResultCache::invalidate);
 
-            reservation.setStatus("CANCELLED");
+        log.info("Exiting InventoryController::cancelAll()");
+        return Mono.empty();
+    }
 
+    private ReservationResult reserveOne(OrderDto order) {
+        ReservationResult cached = reservationResultCache.get(order.getOrderId());
+        if (cached != null) {
+            log.info("Reservation for order {} answered from cache", order.getOrderId());
+            return cached;
         }
 
-        log.info("Exiting InventoryController::cancel()");
-        return Mono.empty();
+        ReservationResult result = reservationEngine.reserve(order);
+        reservationResultCache.put(result);
+        reservationExpiry.ifAvailable(expiry -> expiry.track(order.getOrderId()));
+        stockChanged(result.getReservationItems());
+        return result;
     }
 
-}
+    private void stockChanged(List<ReservationItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
 
+        List<Long> foodIds = items.stream()
+                .map(ReservationItem::getFoodId)
+                .distinct()
+                .toList();
+        long version = menuCache.recordChange(foodIds);
+
+        if (stockEventBroadcaster.hasSubscribers()) {
+            stockEventBroadcaster.publish(version, reservationEngine.getFoods(foodIds)
+                    .stream()
+                    .map(MenuCache::toFoodDto)
+                    .toList());
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package io.poc.inventoryservice.benchmark;
+
+import io.poc.inventoryservice.entity.Food;
+import io.poc.inventoryservice.model.OrderDto;
+import io.poc.inventoryservice.model.OrderItemDto;
+import io.poc.inventoryservice.model.ReservationResult;
+import io.poc.inventoryservice.repository.InventoryRepository;
+import io.poc.inventoryservice.service.HotItemService;
+import io.poc.inventoryservice.service.InventoryService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reserve latency for a single dish at 1, 8 and 64 concurrent callers. slots=0 keeps the stock on the
+// food row (every caller queues on one row lock); slots>0 splits it into food_slot rows first.
+// Run with: ./mvnw -Pjmh verify -Djmh.includes=HotItemContentionBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HotItemContentionBenchmark {
+
+    @Param({"0", "8", "32"})
+    public int slots;
+
+    private final AtomicLong orderIds = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private InventoryService inventoryService;
+    private Long foodId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start("hot", "inventory.reservation.engine=locking");
+
+        foodId = context.getBean(InventoryRepository.class)
+                .save(Food.builder()
+                        .name("Hot dish")
+                        .price(100L)
+                        .stock(Integer.MAX_VALUE / 2)
+                        .build())
+                .getFoodId();
+
+        if (slots > 0) {
+            context.getBean(HotItemService.class).makeHot(foodId, slots);
+        }
+
+        inventoryService = context.getBean(InventoryService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ReservationResult reserve1Caller() {
+        return reserveOne();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ReservationResult reserve8Callers() {
+        return reserveOne();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public ReservationResult reserve64Callers() {
+        return reserveOne();
+    }
+
+    private ReservationResult reserveOne() {
+        List<OrderItemDto> items = new ArrayList<>(1);
+        items.add(OrderItemDto.builder()
+                .foodId(foodId)
+                .quantity(1)
+                .price(100L)
+                .build());
+
+        return inventoryService.reserve(OrderDto.builder()
+                        .orderId(orderIds.incrementAndGet())
+                        .items(items)
+                        .build())
+                .block();
+    }
+}
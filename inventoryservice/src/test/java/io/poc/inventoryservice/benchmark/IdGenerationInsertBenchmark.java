@@ -0,0 +1,113 @@
+package io.poc.inventoryservice.benchmark;
+
+import io.poc.inventoryservice.entity.Reservation;
+import io.poc.inventoryservice.repository.ReservationRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Writing one order's reservation rows in a transaction, before and after pooled sequence ids.
+// identity replays what Hibernate does for IDENTITY ids: one INSERT per row, each reading back its key.
+// pooledSequence is the current Reservation mapping: ids from a pooled sequence, one batched INSERT.
+// Scores are transactions per second; multiply by rowsPerOrder for inserts per second.
+// Run with: ./mvnw -Pjmh verify -Djmh.includes=IdGenerationInsertBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class IdGenerationInsertBenchmark {
+
+    private static final String CREATE_IDENTITY_TABLE =
+            "CREATE TABLE reservation_identity (" +
+            "reservation_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, order_id BIGINT, food_id BIGINT, " +
+            "reservation_count INT, status VARCHAR(255), slot_no INT, reserved_at TIMESTAMP WITH TIME ZONE)";
+
+    private static final String INSERT_IDENTITY =
+            "INSERT INTO reservation_identity (order_id, food_id, reservation_count, status, slot_no, reserved_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Param({"1", "15"})
+    public int rowsPerOrder;
+
+    private final AtomicLong orderIds = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private ReservationRepository reservationRepository;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start("ids", "inventory.reservation.expiry.enabled=false");
+
+        reservationRepository = context.getBean(ReservationRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        jdbcTemplate.execute(CREATE_IDENTITY_TABLE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void identity() {
+        List<Reservation> rows = newOrder();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Reservation row : rows) {
+                GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+                jdbcTemplate.update(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(INSERT_IDENTITY, new String[]{"reservation_id"});
+                    ps.setLong(1, row.getOrderId());
+                    ps.setLong(2, row.getFoodId());
+                    ps.setInt(3, row.getReservationCount());
+                    ps.setString(4, row.getStatus());
+                    ps.setObject(5, null);
+                    ps.setTimestamp(6, Timestamp.from(row.getReservedAt()));
+                    return ps;
+                }, keyHolder);
+                row.setReservationId(keyHolder.getKeyAs(Long.class));
+            }
+        });
+    }
+
+    @Benchmark
+    public void pooledSequence() {
+        List<Reservation> rows = newOrder();
+
+        transactionTemplate.executeWithoutResult(status -> reservationRepository.saveAll(rows));
+    }
+
+    private List<Reservation> newOrder() {
+        long orderId = orderIds.incrementAndGet();
+        Instant now = Instant.now();
+
+        List<Reservation> rows = new ArrayList<>(rowsPerOrder);
+        for (int i = 0; i < rowsPerOrder; i++) {
+            rows.add(Reservation.builder()
+                    .orderId(orderId)
+                    .foodId((long) i + 1)
+                    .reservationCount(1)
+                    .status("RESERVED")
+                    .reservedAt(now)
+                    .build());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,132 @@
+package io.poc.inventoryservice.benchmark;
+
+import io.poc.inventoryservice.entity.Food;
+import io.poc.inventoryservice.model.MenuSnapshot;
+import io.poc.inventoryservice.model.OrderDto;
+import io.poc.inventoryservice.model.OrderItemDto;
+import io.poc.inventoryservice.model.ReservationResult;
+import io.poc.inventoryservice.repository.InventoryRepository;
+import io.poc.inventoryservice.service.InventoryService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+// Every InventoryService path an order goes through, per reservation engine, on H2 in PostgreSQL mode.
+// Throughput and SampleTime (p99) come out of the same run; the locking engine is the baseline.
+// confirm/cancel reserve a fresh order in an invocation-level setup, which JMH does not time.
+// Run with: ./mvnw -Pjmh verify -Djmh.includes=ReservationPathBenchmark -Djmh.options="-t 16 -p orderSize=5"
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class ReservationPathBenchmark {
+
+    @Param({"locking", "ledger"})
+    public String engine;
+
+    @Param({"1", "5", "20"})
+    public int orderSize;
+
+    @Param({"100"})
+    public int catalogueSize;
+
+    private final AtomicLong orderIds = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private InventoryService inventoryService;
+    private List<Long> foodIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start("path", "inventory.reservation.engine=" + engine);
+
+        foodIds = context.getBean(InventoryRepository.class)
+                .saveAll(IntStream.range(0, catalogueSize)
+                        .mapToObj(i -> Food.builder()
+                                .name("Dish " + i)
+                                .price(100L)
+                                .stock(Integer.MAX_VALUE / 2)
+                                .build())
+                        .toList())
+                .stream()
+                .map(Food::getFoodId)
+                .toList();
+
+        inventoryService = context.getBean(InventoryService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class OpenOrder {
+
+        private final List<Long> shuffled = new ArrayList<>();
+        private Long orderId;
+
+        @Setup(Level.Invocation)
+        public void reserve(ReservationPathBenchmark benchmark) {
+            orderId = benchmark.reserveNewOrder(shuffled).getOrderId();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Basket {
+
+        private final List<Long> shuffled = new ArrayList<>();
+    }
+
+    @Benchmark
+    public ReservationResult reserve(Basket basket) {
+        return reserveNewOrder(basket.shuffled);
+    }
+
+    @Benchmark
+    public void confirm(OpenOrder order) {
+        inventoryService.confirm(order.orderId).block();
+    }
+
+    @Benchmark
+    public void cancel(OpenOrder order) {
+        inventoryService.cancel(order.orderId).block();
+    }
+
+    @Benchmark
+    public MenuSnapshot getMenu() {
+        return inventoryService.getMenuSnapshot();
+    }
+
+//    orderSize distinct dishes picked at random, so every order line takes its own stock row.
+    ReservationResult reserveNewOrder(List<Long> shuffled) {
+        if (shuffled.isEmpty()) {
+            shuffled.addAll(foodIds);
+        }
+        Collections.shuffle(shuffled);
+
+        List<OrderItemDto> items = new ArrayList<>(orderSize);
+        for (int i = 0; i < orderSize; i++) {
+            items.add(OrderItemDto.builder()
+                    .foodId(shuffled.get(i))
+                    .quantity(1)
+                    .price(100L)
+                    .build());
+        }
+
+        return inventoryService.reserve(OrderDto.builder()
+                        .orderId(orderIds.incrementAndGet())
+                        .items(items)
+                        .build())
+                .block();
+    }
+}
@@ -0,0 +1,89 @@
+package io.poc.inventoryservice.benchmark;
+
+import io.poc.inventoryservice.entity.Food;
+import io.poc.inventoryservice.model.OrderDto;
+import io.poc.inventoryservice.model.OrderItemDto;
+import io.poc.inventoryservice.model.ReservationResult;
+import io.poc.inventoryservice.repository.InventoryRepository;
+import io.poc.inventoryservice.service.InventoryService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+// Reserve throughput of the row-locking engine against the in-memory stock ledger, on an embedded
+// H2 database in PostgreSQL mode. A small catalogue keeps every thread competing for the same dishes.
+// Run with: ./mvnw -Pjmh verify -Djmh.includes=ReserveThroughputBenchmark (-Djmh.options="-t 16" for threads)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class ReserveThroughputBenchmark {
+
+    @Param({"locking", "ledger"})
+    public String engine;
+
+    @Param({"10"})
+    public int catalogueSize;
+
+    @Param({"3"})
+    public int itemsPerOrder;
+
+    private final AtomicLong orderIds = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private InventoryService inventoryService;
+    private List<Long> foodIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start("reserve", "inventory.reservation.engine=" + engine);
+
+        InventoryRepository inventoryRepository = context.getBean(InventoryRepository.class);
+        foodIds = inventoryRepository.saveAll(IntStream.range(0, catalogueSize)
+                        .mapToObj(i -> Food.builder()
+                                .name("Dish " + i)
+                                .price(100L)
+                                .stock(Integer.MAX_VALUE / 2)
+                                .build())
+                        .toList())
+                .stream()
+                .map(Food::getFoodId)
+                .toList();
+
+        inventoryService = context.getBean(InventoryService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ReservationResult reserve() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        List<OrderItemDto> items = new ArrayList<>(itemsPerOrder);
+        for (int i = 0; i < itemsPerOrder; i++) {
+            items.add(OrderItemDto.builder()
+                    .foodId(foodIds.get(random.nextInt(foodIds.size())))
+                    .quantity(1)
+                    .price(100L)
+                    .build());
+        }
+
+        return inventoryService.reserve(OrderDto.builder()
+                        .orderId(orderIds.incrementAndGet())
+                        .items(items)
+                        .build())
+                .block();
+    }
+}
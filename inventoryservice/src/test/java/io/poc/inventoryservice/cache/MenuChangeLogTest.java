@@ -0,0 +1,46 @@
+package io.poc.inventoryservice.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A since-version the log cannot vouch for, from before this instance started or already overwritten
+// in the ring, must come back as null so the caller answers with the full menu.
+class MenuChangeLogTest {
+
+    private static final long START = 1_000;
+
+    @Test
+    void answersChangesWithinTheRetainedWindow() {
+        MenuChangeLog changeLog = new MenuChangeLog(8, START);
+        changeLog.record(START + 1, List.of(1L, 2L));
+        changeLog.record(START + 2, List.of(3L));
+
+        assertThat(changeLog.changedBetween(START, START + 2)).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(changeLog.changedBetween(START + 1, START + 2)).containsExactly(3L);
+        assertThat(changeLog.changedBetween(START + 2, START + 2)).isEmpty();
+    }
+
+    @Test
+    void versionFromBeforeStartIsEvicted() {
+        MenuChangeLog changeLog = new MenuChangeLog(8, START);
+        changeLog.record(START + 1, List.of(1L));
+
+        assertThat(changeLog.changedBetween(START - 1, START + 1)).isNull();
+    }
+
+    @Test
+    void versionOlderThanTheRingIsEvicted() {
+        MenuChangeLog changeLog = new MenuChangeLog(4, START);
+        for (long version = START + 1; version <= START + 6; version++) {
+            changeLog.record(version, List.of(version));
+        }
+
+//        The ring keeps START+3..START+6; START+2 was the last entry overwritten.
+        assertThat(changeLog.changedBetween(START + 1, START + 6)).isNull();
+        assertThat(changeLog.changedBetween(START + 2, START + 6))
+                .containsExactlyInAnyOrder(START + 3, START + 4, START + 5, START + 6);
+    }
+}
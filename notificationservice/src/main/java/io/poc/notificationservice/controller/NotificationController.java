@@ -8,6 +8,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/notification-service")
 public class NotificationController {
@@ -31,4 +33,17 @@ public class NotificationController {
 
         return new ResponseEntity<>(status, HttpStatus.OK);
     }
+
+//    One result per notification, in request order.
+    @PostMapping("/notify/batch")
+    public ResponseEntity<List<Boolean>> notifyAll(
+            @RequestBody List<OrderDto> orders) {
+
+        log.info("NotificationController::notifyAll");
+
+        List<Boolean> statuses = notificationService.notifyAll(orders);
+        log.info("Exiting NotificationController::notifyAll");
+
+        return new ResponseEntity<>(statuses, HttpStatus.OK);
+    }
 }
@@ -2,7 +2,11 @@ package io.poc.notificationservice.service;
 
 import io.poc.notificationservice.model.OrderDto;
 
+import java.util.List;
+
 public interface NotificationService {
 
     Boolean notify(OrderDto order);
+
+    List<Boolean> notifyAll(List<OrderDto> orders);
 }
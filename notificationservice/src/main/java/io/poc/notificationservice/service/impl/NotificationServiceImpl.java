@@ -6,6 +6,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 public class NotificationServiceImpl implements NotificationService {
 
@@ -30,4 +32,12 @@ public class NotificationServiceImpl implements NotificationService {
         log.info("Exiting NotificationServiceImpl::notify()");
         return false;
     }
+
+    public List<Boolean> notifyAll(List<OrderDto> orders) {
+        log.info("Entering NotificationServiceImpl::notifyAll() with {} notifications", orders.size());
+
+        return orders.stream()
+                .map(this::notify)
+                .toList();
+    }
 }
@@ -0,0 +1,66 @@
+package io.poc.orderservice.client;
+
+import io.poc.orderservice.model.FoodDto;
+import io.poc.orderservice.model.OrderDto;
+import io.poc.orderservice.model.ReservationResult;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Component
+public class InventoryClient {
+
+    @Value("${service.inventory}")
+    private String INVENTORY_SERVICE;
+
+    private final WebClient webClient;
+
+    public InventoryClient(@Qualifier("inventoryWebClient") WebClient webClient) {
+        this.webClient = webClient;
+    }
+
+    public Mono<List<FoodDto>> menu() {
+        return webClient.get()
+                .uri(INVENTORY_SERVICE + "/menu")
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<FoodDto>>() {});
+    }
+
+    // Inventory answers an order it cannot stock with 404; like reserveAll, that comes back as OUT_OF_STOCK.
+    public Mono<ReservationResult> reserve(OrderDto orderDto) {
+        return webClient.post()
+                .uri(INVENTORY_SERVICE + "/reserve")
+                .bodyValue(orderDto)
+                .retrieve()
+                .bodyToMono(ReservationResult.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.just(ReservationResult.builder()
+                        .orderId(orderDto.getOrderId())
+                        .reservationStatus("OUT_OF_STOCK")
+                        .build()));
+    }
+
+    // Releases whatever inventory holds for the order; a no-op when nothing was reserved.
+    public Mono<Void> cancel(Long orderId) {
+        return webClient.post()
+                .uri(INVENTORY_SERVICE + "/reserve/cancel")
+                .bodyValue(orderId)
+                .retrieve()
+                .toBodilessEntity()
+                .then();
+    }
+
+    // One result per order, in request order; orders out of stock come back as OUT_OF_STOCK.
+    public Mono<List<ReservationResult>> reserveAll(List<OrderDto> orders) {
+        return webClient.post()
+                .uri(INVENTORY_SERVICE + "/reserve/batch")
+                .bodyValue(orders)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<ReservationResult>>() {});
+    }
+}
@@ -0,0 +1,32 @@
+package io.poc.orderservice.client;
+
+import io.poc.orderservice.model.OrderDto;
+import io.poc.orderservice.model.PaymentDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+@Component
+public class PaymentClient {
+
+    @Value("${service.payment}")
+    private String PAYMENT_SERVICE;
+
+    private final WebClient webClient;
+
+    public PaymentClient(@Qualifier("paymentWebClient") WebClient webClient) {
+        this.webClient = webClient;
+    }
+
+    public Mono<PaymentDto> pay(OrderDto order) {
+        return webClient.post()
+                .uri(PAYMENT_SERVICE + "/pay")
+                .bodyValue(order)
+//                A 409 means the payment is still pending; it has to fail the step, not complete it without a status.
+                .exchangeToMono(response -> response.statusCode().is2xxSuccessful()
+                        ? response.bodyToMono(PaymentDto.class)
+                        : response.createError());
+    }
+}
@@ -1,27 +1,109 @@
 package io.poc.orderservice.config;
 
+import io.netty.channel.ChannelOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.regex.Pattern;
 
 @Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
 public class Config {
 
+//    Numeric path segments become {id} in the request metrics' uri tag, one series per endpoint.
+    private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+    private final HttpClientProperties httpClientProperties;
     private final Logger log = LoggerFactory.getLogger(Config.class);
 
+    public Config(HttpClientProperties httpClientProperties) {
+        this.httpClientProperties = httpClientProperties;
+    }
+
+//    One connection pool per downstream: a slow inventory can only hold inventory's connections, and its
+//    callers queue on that pool instead of taking the ones payment calls need. Pools publish
+//    reactor.netty.connection.provider.* metrics (active, idle, pending, acquire time) tagged by name.
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider inventoryConnectionProvider() {
+        return connectionProvider("inventory");
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider paymentConnectionProvider() {
+        return connectionProvider("payment");
+    }
+
+    @Bean
+    public WebClient inventoryWebClient(
+            WebClient.Builder builder,
+            @Qualifier("inventoryConnectionProvider") ConnectionProvider connectionProvider
+    ) {
+        HttpClient httpClient = httpClient("inventory", connectionProvider)
+                .responseTimeout(httpClientProperties.downstream("inventory").getResponseTimeout());
+        return webClient(builder, httpClient);
+    }
+
+//    Same pool without the response deadline, for the menu stream that stays quiet between stock changes.
     @Bean
-    public RestTemplate restTemplate() {
-        log.info("RestTemplate");
-        return new RestTemplate();
+    public WebClient inventoryStreamWebClient(
+            WebClient.Builder builder,
+            @Qualifier("inventoryConnectionProvider") ConnectionProvider connectionProvider
+    ) {
+        return webClient(builder, httpClient("inventory", connectionProvider));
     }
 
     @Bean
-    public WebClient webClient() {
-        log.info("WebClient");
-        return WebClient.builder()
+    public WebClient paymentWebClient(
+            WebClient.Builder builder,
+            @Qualifier("paymentConnectionProvider") ConnectionProvider connectionProvider
+    ) {
+        HttpClient httpClient = httpClient("payment", connectionProvider)
+                .responseTimeout(httpClientProperties.downstream("payment").getResponseTimeout());
+        return webClient(builder, httpClient);
+    }
+
+    private ConnectionProvider connectionProvider(String name) {
+        HttpClientProperties.Downstream downstream = httpClientProperties.downstream(name);
+        log.info("Connection pool for {}: {}", name, downstream);
+
+        return ConnectionProvider.builder(name)
+                .maxConnections(downstream.getMaxConnections())
+                .pendingAcquireMaxCount(downstream.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(downstream.getPendingAcquireTimeout())
+                .maxIdleTime(downstream.getMaxIdleTime())
+                .maxLifeTime(downstream.getMaxLifeTime())
+                .evictInBackground(downstream.getEvictInBackground())
+                .metrics(true)
+                .build();
+    }
+
+    private HttpClient httpClient(String name, ConnectionProvider connectionProvider) {
+        HttpClientProperties.Downstream downstream = httpClientProperties.downstream(name);
+
+//        h2c with HTTP/1.1 fallback: the service URLs are plain http.
+        HttpProtocol[] protocols = downstream.isHttp2()
+                ? new HttpProtocol[]{HttpProtocol.H2C, HttpProtocol.HTTP11}
+                : new HttpProtocol[]{HttpProtocol.HTTP11};
+
+        return HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) downstream.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .protocol(protocols)
+                .metrics(true, uri -> ID_SEGMENT.matcher(uri).replaceAll("/{id}"));
+    }
+
+    private WebClient webClient(WebClient.Builder builder, HttpClient httpClient) {
+        return builder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .build();
     }
 }
@@ -0,0 +1,68 @@
+package io.poc.orderservice.config;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+@Configuration
+public class PersistenceConfig {
+
+    private final Logger log = LoggerFactory.getLogger(PersistenceConfig.class);
+
+//    Blocking JPA writes run here, never on a Netty event loop. "bounded" is a bounded elastic pool of
+//    concurrency threads; "virtual" runs each write on a virtual thread, at most concurrency at a time.
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnProperty(name = "order.persistence.mode", havingValue = "jpa", matchIfMissing = true)
+    public Scheduler orderPersistenceScheduler(
+            @Value("${order.persistence.scheduler:bounded}") String type,
+            @Value("${order.persistence.concurrency:16}") int concurrency,
+            @Value("${order.persistence.queue-size:10000}") int queueSize
+    ) {
+        log.info("Order persistence scheduler: {} with concurrency {}", type, concurrency);
+
+        if (type.equalsIgnoreCase("virtual")) {
+            ExecutorService virtualThreads = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("order-db-", 0).factory());
+            Semaphore permits = new Semaphore(concurrency);
+
+//            Waiting for a permit parks the virtual thread only, so queued writes cost no platform thread.
+            return Schedulers.fromExecutor(task -> virtualThreads.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        return Schedulers.newBoundedElastic(concurrency, queueSize, "order-db");
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "order.persistence.mode", havingValue = "r2dbc")
+    public ConnectionFactory orderConnectionFactory(
+            @Value("${order.persistence.r2dbc.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password
+    ) {
+        log.info("Order persistence over R2DBC: {}", url);
+        return ConnectionFactories.get(ConnectionFactoryOptions.parse(url)
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build());
+    }
+}
@@ -2,11 +2,18 @@ package io.poc.orderservice.controller;
 
 import io.poc.orderservice.model.FoodDto;
 import io.poc.orderservice.model.OrderDto;
+import io.poc.orderservice.model.OrderHistoryEntry;
+import io.poc.orderservice.model.OrderStatusEvent;
+import io.poc.orderservice.model.OrderSummary;
 import io.poc.orderservice.service.OrderService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
@@ -24,11 +31,10 @@ public class OrderController {
     }
 
     @GetMapping(path = "/menu")
-    public ResponseEntity<List<FoodDto>> getMenu(){
+    public ResponseEntity<Mono<List<FoodDto>>> getMenu(){
         log.info("Entering OrderController::getMenu");
 
-        List<FoodDto> menu = orderService.menu();
-        log.info("Menu fetched successfully");
+        Mono<List<FoodDto>> menu = orderService.menu();
 
         log.info("Exiting OrderController::getMenu");
         return ResponseEntity.ok().body(menu);
@@ -46,4 +52,54 @@ public class OrderController {
         log.info("Exiting OrderController::placeOrder");
         return ResponseEntity.ok(order);
     }
+
+    @PostMapping(path = "/orders")
+    public Mono<ResponseEntity<OrderDto>> acceptOrder(
+            @RequestBody OrderDto orderRequest
+    ){
+        log.info("Entering OrderController::acceptOrder");
+
+//        Captured here: the Location is built on whichever thread stored the order.
+        UriComponentsBuilder orderUri = ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{orderId}");
+
+        return orderService.acceptOrder(orderRequest)
+                .map(order -> ResponseEntity.accepted()
+                        .location(orderUri.buildAndExpand(order.getOrderId()).toUri())
+                        .body(order));
+    }
+
+    @GetMapping(path = "/orders/{orderId}")
+    public Mono<ResponseEntity<OrderSummary>> getOrder(@PathVariable Long orderId){
+        log.info("Entering OrderController::getOrder for order {}", orderId);
+
+        return orderService.getOrder(orderId)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(path = "/users/{userId}/orders/recent")
+    public Mono<ResponseEntity<List<OrderSummary>>> recentOrders(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "20") int limit
+    ){
+        log.info("Entering OrderController::recentOrders for user {}", userId);
+        return orderService.recentOrders(userId, limit).map(ResponseEntity::ok);
+    }
+
+//    Newline-delimited JSON, one order per line, written as the store reads them.
+    @GetMapping(path = "/users/{userId}/orders", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<OrderHistoryEntry> orderHistory(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit
+    ){
+        log.info("Entering OrderController::orderHistory for user {}", userId);
+        return orderService.orderHistory(userId, cursor, limit);
+    }
+
+    @GetMapping(path = "/orders/{orderId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<OrderStatusEvent> orderEvents(@PathVariable Long orderId){
+        log.info("Entering OrderController::orderEvents for order {}", orderId);
+        return orderService.orderEvents(orderId);
+    }
 }
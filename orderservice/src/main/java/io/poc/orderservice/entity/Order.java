@@ -1,6 +1,7 @@
 package io.poc.orderservice.entity;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import io.poc.orderservice.id.SnowflakeId;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -14,10 +15,13 @@ import java.util.List;
 @NoArgsConstructor
 @Entity
 @ToString
-@Table(name = "orders")
+@Table(
+        name = "orders",
+        indexes = @Index(name = "idx_orders_user_history", columnList = "user_id, created_at, order_id")
+)
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long orderId;
 
     @OneToMany(
@@ -1,6 +1,7 @@
 package io.poc.orderservice.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import io.poc.orderservice.id.SnowflakeId;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -11,10 +12,13 @@ import lombok.*;
 @NoArgsConstructor
 @Entity
 @ToString
-@Table(name = "order_item")
+@Table(
+        name = "order_item",
+        indexes = @Index(name = "idx_order_item_order", columnList = "order_id")
+)
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
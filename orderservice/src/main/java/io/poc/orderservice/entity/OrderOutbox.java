@@ -0,0 +1,36 @@
+package io.poc.orderservice.entity;
+
+import io.poc.orderservice.id.SnowflakeId;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.sql.Timestamp;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@ToString
+@Table(
+        name = "order_outbox",
+        indexes = @Index(name = "idx_order_outbox_due", columnList = "status, next_attempt_at")
+)
+public class OrderOutbox {
+    @Id
+    @SnowflakeId
+    private Long id;
+    private Long orderId;
+    private String type;
+
+    @Lob
+    @ToString.Exclude
+    private String payload;
+
+    private String status;
+    private int attempts;
+    private Timestamp nextAttemptAt;
+    private Timestamp claimedAt;
+    private Timestamp createdAt;
+}
@@ -0,0 +1,54 @@
+package io.poc.orderservice.event;
+
+import io.poc.orderservice.model.OrderStatusEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+// Order status transitions for clients following an order. Only orders somebody is watching are in
+// the map, so publishing for an unwatched order is a single lookup.
+@Component
+public class OrderStatusBroadcaster {
+
+    public static final Set<String> TERMINAL_STATUSES = Set.of("COMPLETED", "CANCELLED", "FAILED");
+
+    private final Map<Long, Set<FluxSink<OrderStatusEvent>>> watchers = new ConcurrentHashMap<>();
+
+    public void publish(Long orderId, String status) {
+        Set<FluxSink<OrderStatusEvent>> sinks = watchers.get(orderId);
+        if (sinks == null) {
+            return;
+        }
+
+        OrderStatusEvent event = OrderStatusEvent.builder()
+                .orderId(orderId)
+                .orderStatus(status)
+                .at(Timestamp.valueOf(LocalDateTime.now()))
+                .build();
+        sinks.forEach(sink -> sink.next(event));
+    }
+
+    // The watcher is registered on subscribe, before anything after it in a concat or merge reads
+    // the current status, so no transition can fall in between.
+    public Flux<OrderStatusEvent> watch(Long orderId) {
+        return Flux.create(sink -> {
+            watchers.compute(orderId, (id, sinks) -> {
+                Set<FluxSink<OrderStatusEvent>> watching = sinks == null ? new CopyOnWriteArraySet<>() : sinks;
+                watching.add(sink);
+                return watching;
+            });
+
+            sink.onDispose(() -> watchers.computeIfPresent(orderId, (id, sinks) -> {
+                sinks.remove(sink);
+                return sinks.isEmpty() ? null : sinks;
+            }));
+        });
+    }
+}
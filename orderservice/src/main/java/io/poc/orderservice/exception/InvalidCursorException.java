@@ -0,0 +1,8 @@
+package io.poc.orderservice.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
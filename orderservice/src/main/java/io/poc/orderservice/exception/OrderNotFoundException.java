@@ -0,0 +1,8 @@
+package io.poc.orderservice.exception;
+
+public class OrderNotFoundException extends RuntimeException {
+
+    public OrderNotFoundException(String message) {
+        super(message);
+    }
+}
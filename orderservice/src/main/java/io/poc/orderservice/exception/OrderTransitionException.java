@@ -0,0 +1,8 @@
+package io.poc.orderservice.exception;
+
+public class OrderTransitionException extends RuntimeException {
+
+    public OrderTransitionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,29 @@
+package io.poc.orderservice.exception.handler;
+
+import io.poc.orderservice.exception.InvalidCursorException;
+import io.poc.orderservice.exception.OrderNotFoundException;
+import io.poc.orderservice.exception.OrderTransitionException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+@ControllerAdvice
+public class GlobalHandler {
+
+    @ExceptionHandler(OrderNotFoundException.class)
+    public ResponseEntity<ErrorResponse> orderNotFoundException(){
+        return ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(OrderTransitionException.class)
+    public ResponseEntity<ErrorResponse> orderTransitionException(){
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponse> invalidCursorException(){
+        return ResponseEntity.badRequest().build();
+    }
+}
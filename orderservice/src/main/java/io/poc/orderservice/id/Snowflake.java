@@ -0,0 +1,64 @@
+package io.poc.orderservice.id;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 64-bit time ordered ids: 41 bits of milliseconds since 2024-01-01, 10 bits of node id, 12 bits of
+// counter. Lock free; when a millisecond runs out of counter values, or the clock steps back, ids
+// carry on from the last timestamp instead of waiting, so they stay unique and increasing.
+// Ids are above 2^53, the largest integer a JavaScript number holds exactly, so JavaScript clients must
+// get them as strings; as JSON numbers they are silently rounded to a neighbouring id.
+public final class Snowflake {
+
+    private static final long EPOCH = 1704067200000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final Map<Integer, Snowflake> NODES = new ConcurrentHashMap<>();
+
+    private final long node;
+
+    // timestamp << SEQUENCE_BITS | sequence of the last id handed out
+    private final AtomicLong state = new AtomicLong();
+
+    private Snowflake(long node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Snowflake node id must be between 0 and " + MAX_NODE + ", was " + node);
+        }
+        this.node = node;
+    }
+
+    // One generator per node for the whole JVM, shared by every entity and the R2DBC store.
+    public static Snowflake forNode(int node) {
+        return NODES.computeIfAbsent(node, Snowflake::new);
+    }
+
+    // The configured node id has no default: two instances left on the same one hand out the same ids.
+    public static Snowflake forNode(String node) {
+        if (node == null || node.isBlank()) {
+            throw new IllegalStateException("order.snowflake.node-id is not set; give every running instance its own"
+                    + " node id between 0 and " + MAX_NODE + ", e.g. ORDER_SNOWFLAKE_NODE_ID in its environment");
+        }
+        return forNode(Integer.parseInt(node.trim()));
+    }
+
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            long now = System.currentTimeMillis() - EPOCH;
+
+            long next = now > (last >>> SEQUENCE_BITS)
+                    ? now << SEQUENCE_BITS
+                    : last + 1;
+
+            if (state.compareAndSet(last, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+                        | node << SEQUENCE_BITS
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.poc.orderservice.id;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.generator.GeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+
+// The node id comes from the Hibernate setting order.snowflake.node-id
+// (spring.jpa.properties.order.snowflake.node-id); startup fails when it is unset.
+public class SnowflakeIdGenerator implements BeforeExecutionGenerator {
+
+    public static final String NODE_ID_SETTING = "order.snowflake.node-id";
+
+    private final Snowflake snowflake;
+
+    public SnowflakeIdGenerator(SnowflakeId config, Member member, GeneratorCreationContext context) {
+        String node = context.getServiceRegistry()
+                .requireService(ConfigurationService.class)
+                .getSetting(NODE_ID_SETTING, StandardConverters.STRING);
+        this.snowflake = Snowflake.forNode(node);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return snowflake.nextId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
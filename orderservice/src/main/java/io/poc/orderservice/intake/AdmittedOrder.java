@@ -0,0 +1,8 @@
+package io.poc.orderservice.intake;
+
+import io.poc.orderservice.entity.Order;
+import io.poc.orderservice.model.ReservationResult;
+
+// An order that has been persisted as CREATED and has its reservation answer.
+public record AdmittedOrder(Order order, ReservationResult reservation) {
+}
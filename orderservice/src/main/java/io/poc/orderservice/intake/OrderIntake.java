@@ -0,0 +1,155 @@
+package io.poc.orderservice.intake;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.poc.orderservice.client.InventoryClient;
+import io.poc.orderservice.entity.Order;
+import io.poc.orderservice.model.OrderDto;
+import io.poc.orderservice.model.ReservationResult;
+import io.poc.orderservice.repository.OrderStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Gathers incoming orders for up to window or max-size orders, then writes the whole batch in one
+// transaction and reserves it with one call to inventory. Each caller gets its own order back. A caller
+// stays in waiting until its batch is taken up, so a loop that dies fails those callers and starts over.
+@Component
+@ConditionalOnProperty(name = "order.intake.batching.enabled", havingValue = "true")
+public class OrderIntake {
+
+    private final OrderStore orderStore;
+    private final InventoryClient inventoryClient;
+    private final DistributionSummary batchSize;
+    private final Timer queueWait;
+
+    private final Set<Sinks.One<AdmittedOrder>> waiting = ConcurrentHashMap.newKeySet();
+    private volatile Sinks.Many<Pending> queue;
+    private volatile Disposable loop;
+
+    @Value("${order.intake.batching.max-size:64}")
+    private int maxSize;
+
+    @Value("${order.intake.batching.window:5ms}")
+    private Duration window;
+
+    @Value("${order.intake.batching.concurrency:4}")
+    private int concurrency;
+
+    private final Logger log = LoggerFactory.getLogger(OrderIntake.class);
+
+    public OrderIntake(OrderStore orderStore, InventoryClient inventoryClient, MeterRegistry meterRegistry) {
+        this.orderStore = orderStore;
+        this.inventoryClient = inventoryClient;
+        this.batchSize = DistributionSummary.builder("order.intake.batch.size")
+                .description("Orders persisted and reserved together")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("order.intake.queue.wait")
+                .description("Time an order waits for its batch to be sent")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        log.info("Initializing OrderIntake");
+    }
+
+    @PostConstruct
+    public void start() {
+        drain();
+        log.info("Batching order intake: up to {} orders every {}", maxSize, window);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (queue != null) {
+            queue.tryEmitComplete();
+        }
+        if (loop != null) {
+            loop.dispose();
+        }
+    }
+
+    public Mono<AdmittedOrder> admit(Order order, OrderDto orderDto) {
+        return Mono.defer(() -> {
+            Sinks.One<AdmittedOrder> admitted = Sinks.one();
+            waiting.add(admitted);
+
+//            Request threads emit concurrently; spin briefly instead of failing on a non-serialized emit.
+            queue.emitNext(new Pending(order, orderDto, admitted, System.nanoTime()),
+                    Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+            return admitted.asMono();
+        });
+    }
+
+//    Fair mode only requests a batch when flatMap has a free slot, so a slow database or inventory holds
+//    orders back in the queue instead of overflowing the buffer.
+    private void drain() {
+        queue = Sinks.many().unicast().onBackpressureBuffer();
+        loop = queue.asFlux()
+                .bufferTimeout(maxSize, window, true)
+                .flatMap(this::admitBatch, concurrency)
+                .subscribe(null, this::restart);
+    }
+
+    private void restart(Throwable e) {
+        log.error("Order intake loop failed, restarting it", e);
+        drain();
+        waiting.forEach(admitted -> {
+            waiting.remove(admitted);
+            admitted.tryEmitError(e);
+        });
+    }
+
+    private Mono<Void> admitBatch(List<Pending> batch) {
+        batch.forEach(pending -> waiting.remove(pending.admitted()));
+
+        long sentAt = System.nanoTime();
+        batchSize.record(batch.size());
+        batch.forEach(pending -> queueWait.record(sentAt - pending.enqueuedAt(), TimeUnit.NANOSECONDS));
+
+        return Mono.defer(() -> orderStore.createAll(batch.stream().map(Pending::order).toList()))
+                .flatMap(saved -> {
+                    batch.forEach(pending -> pending.orderDto().setOrderId(pending.order().getOrderId()));
+                    return inventoryClient.reserveAll(batch.stream().map(Pending::orderDto).toList());
+                })
+                .doOnNext(results -> {
+                    Map<Long, ReservationResult> byOrderId = results.stream()
+                            .collect(Collectors.toMap(ReservationResult::getOrderId, Function.identity()));
+
+                    for (Pending pending : batch) {
+                        ReservationResult result = byOrderId.get(pending.order().getOrderId());
+                        if (result == null) {
+                            pending.admitted().tryEmitError(new IllegalStateException(
+                                    "No reservation result for order " + pending.order().getOrderId()));
+                        } else {
+                            pending.admitted().tryEmitValue(new AdmittedOrder(pending.order(), result));
+                        }
+                    }
+                })
+                .doOnError(e -> {
+                    log.error("Order intake batch of {} failed", batch.size(), e);
+                    batch.forEach(pending -> pending.admitted().tryEmitError(e));
+                })
+                .then()
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    private record Pending(Order order, OrderDto orderDto, Sinks.One<AdmittedOrder> admitted, long enqueuedAt) {
+    }
+}
@@ -0,0 +1,84 @@
+package io.poc.orderservice.menu;
+
+import io.poc.orderservice.client.InventoryClient;
+import io.poc.orderservice.model.FoodDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Stale-while-revalidate copy of inventory's menu for when the replica is off or not connected.
+// Fresh for ttl; after that the old menu is still served at once while a single background fetch
+// replaces it, up to max-stale, past which callers wait for the fetch. Every caller that needs a fetch
+// at the same moment shares the one in flight.
+@Component
+public class MenuCache {
+
+    private final InventoryClient inventoryClient;
+
+    @Value("${order.menu.cache.ttl:5s}")
+    private Duration ttl;
+
+    @Value("${order.menu.cache.max-stale:5m}")
+    private Duration maxStale;
+
+    private volatile Entry entry;
+    private final AtomicReference<Mono<List<FoodDto>>> inFlight = new AtomicReference<>();
+
+    private final Logger log = LoggerFactory.getLogger(MenuCache.class);
+
+    public MenuCache(InventoryClient inventoryClient) {
+        this.inventoryClient = inventoryClient;
+        log.info("Initializing MenuCache");
+    }
+
+    public Mono<List<FoodDto>> menu() {
+        Entry current = entry;
+        if (current != null) {
+            long age = System.nanoTime() - current.fetchedAt();
+
+            if (age < ttl.toNanos()) {
+                return Mono.just(current.menu());
+            }
+            if (age < maxStale.toNanos()) {
+                refresh().subscribe(
+                        menu -> {},
+                        e -> log.warn("Background menu refresh failed, still serving the previous menu: {}", e.toString()));
+                return Mono.just(current.menu());
+            }
+        }
+
+//        Nothing usable cached: wait for the shared fetch, or fall back to a menu past max-stale if it fails.
+        return refresh().onErrorResume(e -> {
+            Entry last = entry;
+            if (last == null) {
+                return Mono.error(e);
+            }
+
+            log.warn("Menu fetch failed, serving a menu older than {}: {}", maxStale, e.toString());
+            return Mono.just(last.menu());
+        });
+    }
+
+    private Mono<List<FoodDto>> refresh() {
+        Mono<List<FoodDto>> running = inFlight.get();
+        if (running != null) {
+            return running;
+        }
+
+        Mono<List<FoodDto>> fetch = inventoryClient.menu()
+                .doOnNext(menu -> entry = new Entry(menu, System.nanoTime()))
+                .doFinally(signal -> inFlight.set(null))
+                .cache();
+
+        return inFlight.compareAndSet(null, fetch) ? fetch : refresh();
+    }
+
+    private record Entry(List<FoodDto> menu, long fetchedAt) {
+    }
+}
@@ -0,0 +1,137 @@
+package io.poc.orderservice.menu;
+
+import io.poc.orderservice.model.FoodDto;
+import io.poc.orderservice.model.MenuDelta;
+import io.poc.orderservice.model.StockChangeEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Local copy of the inventory menu, kept current from inventory's stock-change stream.
+// Each session subscribes to the stream and, once inventory confirms the subscription with its opening
+// event, syncs from the last version it has seen (GET /menu?sinceVersion=N). Events are applied in order
+// after the sync, and those the sync already covers (version <= syncedVersion) are skipped.
+@Component
+@ConditionalOnProperty(name = "order.menu.replica.enabled", havingValue = "true")
+public class MenuReplica {
+
+    @Value("${service.inventory}")
+    private String INVENTORY_SERVICE;
+
+    private final WebClient webClient;
+    private final WebClient streamWebClient;
+    private volatile Map<Long, VersionedFood> foods = new ConcurrentHashMap<>();
+
+    private volatile long syncedVersion;
+    private volatile boolean ready;
+    private Disposable session;
+
+    private final Logger log = LoggerFactory.getLogger(MenuReplica.class);
+
+    public MenuReplica(
+            @Qualifier("inventoryWebClient") WebClient webClient,
+            @Qualifier("inventoryStreamWebClient") WebClient streamWebClient
+    ) {
+        this.webClient = webClient;
+        this.streamWebClient = streamWebClient;
+        log.info("Initializing MenuReplica");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        session = stockChanges()
+                .concatMap(event -> event.getFood() == null ? sync() : Mono.fromRunnable(() -> apply(event)))
+                .then()
+                .doFinally(signal -> ready = false)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .transientErrors(true)
+                        .doBeforeRetry(retry -> log.warn("Menu stream lost, reconnecting: {}", retry.failure().toString())))
+                .repeatWhen(completed -> completed.delayElements(Duration.ofSeconds(1)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (session != null) {
+            session.dispose();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<FoodDto> menu() {
+        return foods.values()
+                .stream()
+                .map(VersionedFood::food)
+                .sorted(Comparator.comparing(FoodDto::getId))
+                .toList();
+    }
+
+    private Flux<StockChangeEvent> stockChanges() {
+        return streamWebClient.get()
+                .uri(INVENTORY_SERVICE + "/menu/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .retrieve()
+                .bodyToFlux(StockChangeEvent.class);
+    }
+
+    private Mono<Void> sync() {
+        return Mono.defer(() -> webClient.get()
+                        .uri(INVENTORY_SERVICE + "/menu?sinceVersion={version}", syncedVersion)
+                        .retrieve()
+                        .bodyToMono(MenuDelta.class))
+                .doOnNext(delta -> {
+
+//                    A full menu replaces the replica, so dishes removed from the menu disappear here too.
+                    if (delta.isFull()) {
+                        Map<Long, VersionedFood> replaced = new ConcurrentHashMap<>();
+                        delta.getItems().forEach(food -> replaced.put(food.getId(), new VersionedFood(delta.getVersion(), food)));
+                        foods = replaced;
+                    } else {
+                        delta.getItems().forEach(food -> apply(delta.getVersion(), food));
+                    }
+                    syncedVersion = delta.getVersion();
+                    ready = true;
+                    log.info("Menu replica synced to version {} ({} items, full={})",
+                            delta.getVersion(), delta.getItems().size(), delta.isFull());
+                })
+                .then();
+    }
+
+    private void apply(StockChangeEvent event) {
+        if (event.getVersion() <= syncedVersion) {
+            return;
+        }
+        apply(event.getVersion(), event.getFood());
+        syncedVersion = Math.max(syncedVersion, event.getVersion());
+    }
+
+    private void apply(long version, FoodDto food) {
+        foods.merge(food.getId(), new VersionedFood(version, food),
+                (current, update) -> update.version() > current.version() ? update : current);
+    }
+
+    private record VersionedFood(long version, FoodDto food) {
+    }
+}
@@ -0,0 +1,36 @@
+package io.poc.orderservice.model;
+
+import io.poc.orderservice.entity.Order;
+import io.poc.orderservice.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Position in a user's order history: the page continues with orders older than (createdAt, orderId).
+// Opaque to clients; createdAt travels at full precision so the seek matches the stored value exactly.
+public record OrderCursor(Timestamp createdAt, Long orderId) {
+
+    public static OrderCursor after(Order order) {
+        return new OrderCursor(order.getCreatedAt(), order.getOrderId());
+    }
+
+    public static OrderCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 2) {
+                throw new InvalidCursorException("Malformed order history cursor " + cursor);
+            }
+            return new OrderCursor(Timestamp.from(Instant.parse(parts[0])), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Malformed order history cursor " + cursor);
+        }
+    }
+
+    public String encode() {
+        String value = createdAt.toInstant() + "|" + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,26 @@
+package io.poc.orderservice.model;
+
+import lombok.*;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class OrderHistoryEntry {
+
+    private Long orderId;
+    private Long orderValue;
+    private String orderStatus;
+    private Timestamp createdAt;
+    private Timestamp updatedAt;
+    private List<OrderItemDto> items;
+
+//    Pass the last entry's cursor back to continue after it.
+    private String cursor;
+
+}
@@ -0,0 +1,17 @@
+package io.poc.orderservice.model;
+
+import lombok.*;
+
+import java.sql.Timestamp;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class OrderStatusEvent {
+    private Long orderId;
+    private String orderStatus;
+    private Timestamp at;
+}
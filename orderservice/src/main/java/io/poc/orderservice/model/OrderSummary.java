@@ -0,0 +1,22 @@
+package io.poc.orderservice.model;
+
+import lombok.*;
+
+import java.sql.Timestamp;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class OrderSummary {
+
+    private Long orderId;
+    private Long userId;
+    private Long orderValue;
+    private String orderStatus;
+    private Timestamp createdAt;
+    private Timestamp updatedAt;
+
+}
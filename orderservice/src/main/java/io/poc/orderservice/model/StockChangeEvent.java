@@ -0,0 +1,14 @@
+package io.poc.orderservice.model;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class StockChangeEvent {
+    private long version;
+    private FoodDto food;
+}
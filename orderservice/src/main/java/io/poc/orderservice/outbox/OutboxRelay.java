@@ -0,0 +1,144 @@
+package io.poc.orderservice.outbox;
+
+import io.poc.orderservice.entity.OrderOutbox;
+import io.poc.orderservice.repository.OrderOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Drains order_outbox in batches. A short transaction claims a batch (SKIP LOCKED, then IN_FLIGHT),
+// the calls run outside of it with bounded concurrency, and the outcomes are written back as one
+// UPDATE for the done entries plus one per retry delay for the failed ones. Entries out of attempts
+// are handed back to the saga, which fails their orders.
+@Component
+@ConditionalOnProperty(name = "order.outbox.enabled", havingValue = "true")
+public class OutboxRelay {
+
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final OutboxSaga outboxSaga;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${order.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${order.outbox.concurrency:16}")
+    private int concurrency;
+
+    @Value("${order.outbox.lease:30s}")
+    private Duration lease;
+
+    @Value("${order.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${order.outbox.backoff:1s}")
+    private Duration backoff;
+
+    @Value("${order.outbox.max-backoff:5m}")
+    private Duration maxBackoff;
+
+    private final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    public OutboxRelay(
+            OrderOutboxRepository orderOutboxRepository,
+            OutboxSaga outboxSaga,
+            TransactionTemplate transactionTemplate
+    ) {
+        this.orderOutboxRepository = orderOutboxRepository;
+        this.outboxSaga = outboxSaga;
+        this.transactionTemplate = transactionTemplate;
+        log.info("Initializing OutboxRelay");
+    }
+
+    @Scheduled(fixedDelayString = "${order.outbox.poll-interval:200ms}")
+    public void relay() {
+        List<OrderOutbox> batch;
+        do {
+
+//            Millisecond precision so the stored claimed_at compares equal when the outcome is written back.
+            LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+            batch = claim(claimedAt);
+            if (!batch.isEmpty()) {
+                dispatch(batch, Timestamp.valueOf(claimedAt));
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private List<OrderOutbox> claim(LocalDateTime now) {
+        return transactionTemplate.execute(status -> {
+            List<OrderOutbox> due = orderOutboxRepository.lockDue(
+                    Timestamp.valueOf(now), Timestamp.valueOf(now.minus(lease)), batchSize);
+
+            if (!due.isEmpty()) {
+                orderOutboxRepository.claim(due.stream().map(OrderOutbox::getId).toList(), Timestamp.valueOf(now));
+            }
+            return due;
+        });
+    }
+
+    private void dispatch(List<OrderOutbox> batch, Timestamp claimedAt) {
+        Queue<Long> done = new ConcurrentLinkedQueue<>();
+        Map<Integer, Queue<Long>> failedByAttempts = new ConcurrentHashMap<>();
+        Queue<OrderOutbox> exhausted = new ConcurrentLinkedQueue<>();
+
+        Flux.fromIterable(batch)
+                .flatMap(entry -> outboxSaga.handle(entry)
+                        .timeout(lease)
+                        .doOnSuccess(ignored -> done.add(entry.getId()))
+                        .onErrorResume(e -> {
+                            log.warn("Outbox entry {} ({} for order {}) failed, attempt {}",
+                                    entry.getId(), entry.getType(), entry.getOrderId(), entry.getAttempts() + 1, e);
+                            failedByAttempts.computeIfAbsent(entry.getAttempts(), attempts -> new ConcurrentLinkedQueue<>())
+                                    .add(entry.getId());
+                            if (entry.getAttempts() + 1 >= maxAttempts) {
+                                exhausted.add(entry);
+                            }
+                            return Mono.empty();
+                        }), concurrency)
+                .blockLast();
+
+        if (!done.isEmpty()) {
+            orderOutboxRepository.markDone(done, claimedAt);
+        }
+
+        failedByAttempts.forEach((attempts, ids) -> {
+            boolean givenUp = attempts + 1 >= maxAttempts;
+            Timestamp retryAt = Timestamp.valueOf(LocalDateTime.now().plus(backoff(attempts)));
+
+            orderOutboxRepository.markFailed(ids, claimedAt, givenUp ? "FAILED" : "PENDING", retryAt);
+            if (givenUp) {
+                log.error("Giving up on outbox entries {} after {} attempts", ids, maxAttempts);
+            }
+        });
+
+        Flux.fromIterable(exhausted)
+                .flatMap(entry -> outboxSaga.abandon(entry)
+                        .onErrorResume(e -> {
+                            log.error("Could not fail order {} after giving up on outbox entry {}",
+                                    entry.getOrderId(), entry.getId(), e);
+                            return Mono.empty();
+                        }), concurrency)
+                .blockLast();
+
+        log.info("Relayed {} outbox entries, {} done", batch.size(), done.size());
+    }
+
+    // backoff * 2^attempts, capped at max-backoff.
+    private Duration backoff(int attempts) {
+        Duration delay = backoff.multipliedBy(1L << Math.min(attempts, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
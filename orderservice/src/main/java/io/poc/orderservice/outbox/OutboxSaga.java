@@ -0,0 +1,170 @@
+package io.poc.orderservice.outbox;
+
+import io.poc.orderservice.client.InventoryClient;
+import io.poc.orderservice.client.PaymentClient;
+import io.poc.orderservice.entity.Order;
+import io.poc.orderservice.entity.OrderOutbox;
+import io.poc.orderservice.event.OrderStatusBroadcaster;
+import io.poc.orderservice.model.OrderDto;
+import io.poc.orderservice.model.PaymentDto;
+import io.poc.orderservice.model.ReservationResult;
+import io.poc.orderservice.projection.OrderStatusProjection;
+import io.poc.orderservice.repository.OrderOutboxRepository;
+import io.poc.orderservice.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// The order saga as outbox steps. Every status change commits together with the outbox entry for the
+// next call (RESERVE, then PAY), so a crash never loses a step; the relay just sends the entry again.
+// Re-sent steps are harmless here: inventory answers a repeated reserve for the same orderId, and a
+// transition that already happened does not apply twice. An out-of-stock reserve fails the order; an entry
+// the relay gives up on fails it too and releases its reservation. Needs order.persistence.mode=jpa.
+@Component
+@ConditionalOnProperty(name = "order.outbox.enabled", havingValue = "true")
+public class OutboxSaga {
+
+    public static final String RESERVE = "RESERVE";
+    public static final String PAY = "PAY";
+
+    private final OrderRepository orderRepository;
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final InventoryClient inventoryClient;
+    private final PaymentClient paymentClient;
+    private final OrderStatusBroadcaster orderStatusBroadcaster;
+    private final OrderStatusProjection orderStatusProjection;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonMapper jsonMapper;
+    private final Scheduler scheduler;
+
+    private final Logger log = LoggerFactory.getLogger(OutboxSaga.class);
+
+    public OutboxSaga(
+            OrderRepository orderRepository,
+            OrderOutboxRepository orderOutboxRepository,
+            InventoryClient inventoryClient,
+            PaymentClient paymentClient,
+            OrderStatusBroadcaster orderStatusBroadcaster,
+            OrderStatusProjection orderStatusProjection,
+            TransactionTemplate transactionTemplate,
+            JsonMapper jsonMapper,
+            @Qualifier("orderPersistenceScheduler") Scheduler scheduler
+    ) {
+        this.orderRepository = orderRepository;
+        this.orderOutboxRepository = orderOutboxRepository;
+        this.inventoryClient = inventoryClient;
+        this.paymentClient = paymentClient;
+        this.orderStatusBroadcaster = orderStatusBroadcaster;
+        this.orderStatusProjection = orderStatusProjection;
+        this.transactionTemplate = transactionTemplate;
+        this.jsonMapper = jsonMapper;
+        this.scheduler = scheduler;
+        log.info("Initializing OutboxSaga");
+    }
+
+    // Stores the CREATED order and its RESERVE entry in one transaction.
+    public Mono<Order> start(Order order, OrderDto orderDto) {
+        return Mono.fromCallable(() -> transactionTemplate.execute(status -> {
+                    Order savedOrder = orderRepository.save(order);
+
+                    orderDto.setOrderId(savedOrder.getOrderId());
+                    orderOutboxRepository.save(entry(savedOrder.getOrderId(), RESERVE, orderDto));
+                    return savedOrder;
+                }))
+                .subscribeOn(scheduler)
+                .doOnNext(orderStatusProjection::created);
+    }
+
+    // Sends one entry and commits its outcome; completes once the next step is stored.
+    // Deferred so an unreadable payload fails this entry only, through the relay's per-entry error handling.
+    public Mono<Void> handle(OrderOutbox entry) {
+        return Mono.defer(() -> {
+            OrderDto order = jsonMapper.readValue(entry.getPayload(), OrderDto.class);
+
+            return switch (entry.getType()) {
+                case RESERVE -> inventoryClient.reserve(order)
+                        .flatMap(result -> commit(order.getOrderId(), () -> reserved(order, result)));
+                case PAY -> paymentClient.pay(order)
+                        .flatMap(payment -> commit(order.getOrderId(), () -> paid(order, payment)));
+                default -> Mono.error(new IllegalStateException("Unknown outbox entry type " + entry.getType()));
+            };
+        });
+    }
+
+    // Called once the relay gives up on an entry: the order fails from the step the entry was for, and
+    // whatever inventory may hold for it is released now instead of at its reservation expiry.
+    public Mono<Void> abandon(OrderOutbox entry) {
+        Long orderId = entry.getOrderId();
+        String from = entry.getType().equals(RESERVE) ? "CREATED" : "RESERVED";
+
+        return commit(orderId, () -> transition(orderId, from, "FAILED"))
+                .then(inventoryClient.cancel(orderId)
+                        .onErrorResume(e -> {
+                            log.warn("Could not release the reservation of abandoned order {}: {}", orderId, e.toString());
+                            return Mono.empty();
+                        }));
+    }
+
+    private String reserved(OrderDto order, ReservationResult result) {
+        if (!result.getReservationStatus().equalsIgnoreCase("RESERVED")) {
+            return transition(order.getOrderId(), "CREATED", "FAILED");
+        }
+
+        String status = transition(order.getOrderId(), "CREATED", "RESERVED");
+        if (status != null) {
+            order.setOrderStatus(status);
+            orderOutboxRepository.save(entry(order.getOrderId(), PAY, order));
+        }
+        return status;
+    }
+
+    private String paid(OrderDto order, PaymentDto payment) {
+        String to = payment.getStatus().equalsIgnoreCase("PAYMENT_CANCELLED") ? "CANCELLED" : "COMPLETED";
+        return transition(order.getOrderId(), "RESERVED", to);
+    }
+
+    // The new status when the transition applied, null when an earlier delivery already made it.
+    private String transition(Long orderId, String from, String to) {
+        int applied = orderRepository.transition(orderId, from, to, Timestamp.valueOf(LocalDateTime.now()));
+        if (applied == 0) {
+            log.info("Order {} is no longer {}, outbox step already applied", orderId, from);
+            return null;
+        }
+        return to;
+    }
+
+    private Mono<Void> commit(Long orderId, Supplier<String> step) {
+        return Mono.fromCallable(() -> Optional.ofNullable(transactionTemplate.execute(status -> step.get())))
+                .subscribeOn(scheduler)
+                .doOnNext(status -> status.ifPresent(to -> {
+                    orderStatusProjection.transitioned(orderId, to, Timestamp.valueOf(LocalDateTime.now()));
+                    orderStatusBroadcaster.publish(orderId, to);
+                }))
+                .then();
+    }
+
+    private OrderOutbox entry(Long orderId, String type, OrderDto order) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        return OrderOutbox.builder()
+                .orderId(orderId)
+                .type(type)
+                .payload(jsonMapper.writeValueAsString(order))
+                .status("PENDING")
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build();
+    }
+}
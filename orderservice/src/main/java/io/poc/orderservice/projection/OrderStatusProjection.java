@@ -0,0 +1,246 @@
+package io.poc.orderservice.projection;
+
+import io.poc.orderservice.entity.Order;
+import io.poc.orderservice.event.OrderStatusBroadcaster;
+import io.poc.orderservice.model.OrderSummary;
+import io.poc.orderservice.repository.OrderStore;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+
+// Read model of order status for GET /orders/{id} and a user's recent orders, so reads stay off the
+// tables the saga writes. Fed by the same transitions that publish to the broadcaster and rebuilt from
+// orders on startup. Memory is bounded by capacity: open orders always stay, terminal ones leave
+// oldest-first once they are older than the retention or the table is full. Only this instance's
+// transitions reach it, so callers confirm open orders against the store and report back what they read.
+@Component
+public class OrderStatusProjection {
+
+    private static final List<String> STATUSES = List.of("CREATED", "RESERVED", "COMPLETED", "CANCELLED", "FAILED");
+
+    private final OrderStore orderStore;
+
+    @Value("${order.projection.capacity:200000}")
+    private int capacity;
+
+    @Value("${order.projection.terminal-retention:1h}")
+    private Duration terminalRetention;
+
+    private final StampedLock lock = new StampedLock();
+    private final Map<Long, Long> latestByUser = new HashMap<>();
+
+    private OrderStatusTable table;
+
+//    Terminal orderIds in the order they finished, the eviction queue.
+    private long[] terminalRing;
+    private int ringHead;
+    private int ringSize;
+
+    private volatile boolean ready;
+
+    private final Logger log = LoggerFactory.getLogger(OrderStatusProjection.class);
+
+    public OrderStatusProjection(OrderStore orderStore) {
+        this.orderStore = orderStore;
+        log.info("Initializing OrderStatusProjection");
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        table = new OrderStatusTable(capacity);
+        terminalRing = new long[capacity];
+
+        Timestamp since = new Timestamp(System.currentTimeMillis() - terminalRetention.toMillis());
+        List<Order> orders = orderStore.findRecent(since, capacity).block();
+
+//        Newest first from the store; replayed oldest first so user chains and the eviction queue line up.
+        long stamp = lock.writeLock();
+        try {
+            for (int i = orders.size() - 1; i >= 0; i--) {
+                record(orders.get(i));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        ready = true;
+        log.info("Order status projection rebuilt with {} orders", orders.size());
+    }
+
+    public void created(Order order) {
+        long stamp = lock.writeLock();
+        try {
+            record(order);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Only ever moves an order forward, so a status read from the store cannot undo a newer local one.
+    public void transitioned(Long orderId, String status, Timestamp at) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = table.slot(orderId);
+            if (slot == OrderStatusTable.MISSING || code(status) <= table.status(slot)) {
+                return;
+            }
+
+            table.setStatus(slot, code(status), at.getTime());
+            if (OrderStatusBroadcaster.TERMINAL_STATUSES.contains(status)) {
+                enqueueTerminal(orderId);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Empty while rebuilding and for orders the projection does not hold; callers fall back to the store.
+    public Optional<OrderSummary> find(Long orderId) {
+        if (!ready) {
+            return Optional.empty();
+        }
+
+        long stamp = lock.readLock();
+        try {
+            int slot = table.slot(orderId);
+            return slot == OrderStatusTable.MISSING ? Optional.empty() : Optional.of(summary(slot));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Newest first, following each order's link to the user's previous one until limit or an evicted order.
+    public List<OrderSummary> recentByUser(Long userId, int limit) {
+        long stamp = lock.readLock();
+        try {
+            List<OrderSummary> recent = new ArrayList<>(Math.min(limit, 16));
+            Long orderId = latestByUser.get(userId);
+
+            for (long id = orderId == null ? 0 : orderId; id != 0 && recent.size() < limit; ) {
+                int slot = table.slot(id);
+                if (slot == OrderStatusTable.MISSING) {
+                    break;
+                }
+                recent.add(summary(slot));
+                id = table.previousOfUser(slot);
+            }
+            return recent;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.projection.sweep-interval:1m}")
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - terminalRetention.toMillis();
+        int evicted = 0;
+
+        long stamp = lock.writeLock();
+        try {
+            while (ringSize > 0) {
+                int slot = table.slot(terminalRing[ringHead]);
+                if (slot != OrderStatusTable.MISSING && table.updatedAt(slot) >= cutoff) {
+                    break;
+                }
+                evictOldestTerminal();
+                evicted++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        if (evicted > 0) {
+            log.info("Evicted {} terminal orders from the status projection", evicted);
+        }
+    }
+
+    private void record(Order order) {
+        long orderId = order.getOrderId();
+
+//        Recording an order twice would link it to itself, or to a newer order of the same user, in the user chain.
+        if (table.slot(orderId) != OrderStatusTable.MISSING) {
+            return;
+        }
+        if (table.isFull() && !evictOldestTerminal()) {
+            log.warn("Order status projection full of open orders, order {} is served from the database", orderId);
+            return;
+        }
+
+        long userId = order.getUserId() == null ? 0 : order.getUserId();
+        Long previous = userId == 0 ? null : latestByUser.put(userId, orderId);
+        long updatedAt = order.getUpdatedAt() == null ? 0 : order.getUpdatedAt().getTime();
+
+        int slot = table.insert(orderId);
+        table.set(slot, userId, order.getOrderValue() == null ? 0 : order.getOrderValue(),
+                code(order.getOrderStatus()), order.getCreatedAt().getTime(), updatedAt,
+                previous == null ? 0 : previous);
+
+        if (OrderStatusBroadcaster.TERMINAL_STATUSES.contains(order.getOrderStatus())) {
+            enqueueTerminal(orderId);
+        }
+    }
+
+    private void enqueueTerminal(long orderId) {
+//        Each order turns terminal once and the ring is as large as the table, so it cannot overflow.
+        terminalRing[(ringHead + ringSize) % terminalRing.length] = orderId;
+        ringSize++;
+    }
+
+    private boolean evictOldestTerminal() {
+        if (ringSize == 0) {
+            return false;
+        }
+
+        long orderId = terminalRing[ringHead];
+        ringHead = (ringHead + 1) % terminalRing.length;
+        ringSize--;
+
+        int slot = table.slot(orderId);
+        if (slot == OrderStatusTable.MISSING) {
+            return true;
+        }
+
+        long userId = table.userId(slot);
+        Long latest = latestByUser.get(userId);
+        if (latest != null && latest == orderId) {
+            long previous = table.previousOfUser(slot);
+            if (previous != 0 && table.slot(previous) != OrderStatusTable.MISSING) {
+                latestByUser.put(userId, previous);
+            } else {
+                latestByUser.remove(userId);
+            }
+        }
+
+        table.remove(slot);
+        return true;
+    }
+
+    private OrderSummary summary(int slot) {
+        long updatedAt = table.updatedAt(slot);
+
+        return OrderSummary.builder()
+                .orderId(table.orderId(slot))
+                .userId(table.userId(slot))
+                .orderValue(table.orderValue(slot))
+                .orderStatus(STATUSES.get(table.status(slot)))
+                .createdAt(new Timestamp(table.createdAt(slot)))
+                .updatedAt(updatedAt == 0 ? null : new Timestamp(updatedAt))
+                .build();
+    }
+
+    private static byte code(String status) {
+        int code = STATUSES.indexOf(status);
+        if (code < 0) {
+            throw new IllegalArgumentException("Unknown order status " + status);
+        }
+        return (byte) code;
+    }
+}
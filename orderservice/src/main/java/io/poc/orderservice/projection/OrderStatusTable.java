@@ -0,0 +1,143 @@
+package io.poc.orderservice.projection;
+
+// Open-addressing (linear probing) table keyed by orderId, one primitive array per column, so an entry
+// costs ~49 bytes and no objects. Not thread-safe; OrderStatusProjection guards it. Snowflake ids are
+// never 0, so 0 marks a free slot.
+class OrderStatusTable {
+
+    static final int MISSING = -1;
+
+    private final int capacity;
+    private final int mask;
+
+    private final long[] orderIds;
+    private final long[] userIds;
+    private final long[] orderValues;
+    private final long[] createdAt;
+    private final long[] updatedAt;
+    private final long[] previousOfUser;
+    private final byte[] statuses;
+
+    private int size;
+
+    OrderStatusTable(int capacity) {
+        this.capacity = capacity;
+
+//        At least twice the capacity, as a power of two: probes stay short at the 50% worst-case load.
+        int slots = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1) << 1;
+        this.mask = slots - 1;
+
+        this.orderIds = new long[slots];
+        this.userIds = new long[slots];
+        this.orderValues = new long[slots];
+        this.createdAt = new long[slots];
+        this.updatedAt = new long[slots];
+        this.previousOfUser = new long[slots];
+        this.statuses = new byte[slots];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size >= capacity;
+    }
+
+    int slot(long orderId) {
+        for (int i = home(orderId); orderIds[i] != 0; i = (i + 1) & mask) {
+            if (orderIds[i] == orderId) {
+                return i;
+            }
+        }
+        return MISSING;
+    }
+
+    // The slot now holding orderId, a new one if it was not in the table. Callers check isFull first.
+    int insert(long orderId) {
+        int i = home(orderId);
+        while (orderIds[i] != 0) {
+            if (orderIds[i] == orderId) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+
+        orderIds[i] = orderId;
+        size++;
+        return i;
+    }
+
+    // Backward-shift delete: entries after the hole that could live in it move up, so lookups never
+    // need tombstones.
+    void remove(int slot) {
+        int hole = slot;
+        for (int i = (slot + 1) & mask; orderIds[i] != 0; i = (i + 1) & mask) {
+            if (((i - home(orderIds[i])) & mask) >= ((i - hole) & mask)) {
+                move(i, hole);
+                hole = i;
+            }
+        }
+
+        orderIds[hole] = 0;
+        size--;
+    }
+
+    void set(int slot, long userId, long orderValue, byte status, long createdAt, long updatedAt, long previousOfUser) {
+        this.userIds[slot] = userId;
+        this.orderValues[slot] = orderValue;
+        this.statuses[slot] = status;
+        this.createdAt[slot] = createdAt;
+        this.updatedAt[slot] = updatedAt;
+        this.previousOfUser[slot] = previousOfUser;
+    }
+
+    void setStatus(int slot, byte status, long updatedAt) {
+        this.statuses[slot] = status;
+        this.updatedAt[slot] = updatedAt;
+    }
+
+    long orderId(int slot) {
+        return orderIds[slot];
+    }
+
+    long userId(int slot) {
+        return userIds[slot];
+    }
+
+    long orderValue(int slot) {
+        return orderValues[slot];
+    }
+
+    byte status(int slot) {
+        return statuses[slot];
+    }
+
+    long createdAt(int slot) {
+        return createdAt[slot];
+    }
+
+    long updatedAt(int slot) {
+        return updatedAt[slot];
+    }
+
+    long previousOfUser(int slot) {
+        return previousOfUser[slot];
+    }
+
+    private void move(int from, int to) {
+        orderIds[to] = orderIds[from];
+        userIds[to] = userIds[from];
+        orderValues[to] = orderValues[from];
+        createdAt[to] = createdAt[from];
+        updatedAt[to] = updatedAt[from];
+        previousOfUser[to] = previousOfUser[from];
+        statuses[to] = statuses[from];
+    }
+
+    private int home(long orderId) {
+//        Snowflake low bits are a per-millisecond sequence, so mix before masking.
+        long h = orderId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
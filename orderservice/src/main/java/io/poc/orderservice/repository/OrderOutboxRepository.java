@@ -0,0 +1,44 @@
+package io.poc.orderservice.repository;
+
+import io.poc.orderservice.entity.OrderOutbox;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderOutboxRepository extends JpaRepository<OrderOutbox, Long> {
+
+//    Due entries, plus in-flight ones whose relay died before finishing them. SKIP LOCKED lets every
+//    instance claim its own batch without waiting on, or double-taking, rows another instance holds.
+    @Query(value = "SELECT * FROM order_outbox " +
+            "WHERE (status = 'PENDING' AND next_attempt_at <= :now) " +
+            "OR (status = 'IN_FLIGHT' AND claimed_at < :leaseExpired) " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OrderOutbox> lockDue(@Param("now") Timestamp now, @Param("leaseExpired") Timestamp leaseExpired, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE OrderOutbox o SET o.status = 'IN_FLIGHT', o.claimedAt = :now WHERE o.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("now") Timestamp now);
+
+//    Outcomes only apply to the claim that produced them: once a lease expires and another relay re-claims
+//    the entry, claimed_at moves on and the late writer's update matches nothing.
+    @Transactional
+    @Modifying
+    @Query("UPDATE OrderOutbox o SET o.status = 'DONE' " +
+            "WHERE o.id IN :ids AND o.status = 'IN_FLIGHT' AND o.claimedAt = :claimedAt")
+    int markDone(@Param("ids") Collection<Long> ids, @Param("claimedAt") Timestamp claimedAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OrderOutbox o SET o.status = :status, o.attempts = o.attempts + 1, o.nextAttemptAt = :retryAt " +
+            "WHERE o.id IN :ids AND o.status = 'IN_FLIGHT' AND o.claimedAt = :claimedAt")
+    int markFailed(@Param("ids") Collection<Long> ids, @Param("claimedAt") Timestamp claimedAt,
+                   @Param("status") String status, @Param("retryAt") Timestamp retryAt);
+}
@@ -1,9 +1,46 @@
 package io.poc.orderservice.repository;
 
 import io.poc.orderservice.entity.Order;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.items WHERE o.orderId = :orderId")
+    Optional<Order> findWithItems(@Param("orderId") Long orderId);
+
+//    History seeks read only (user_id, created_at, order_id), all in idx_orders_user_history, so paging
+//    never touches the rows; the page's orders and items then come in one fetch join.
+    @Query("SELECT o.orderId FROM Order o WHERE o.userId = :userId ORDER BY o.createdAt DESC, o.orderId DESC")
+    List<Long> findHistoryIds(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT o.orderId FROM Order o WHERE o.userId = :userId " +
+            "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.orderId < :orderId)) " +
+            "ORDER BY o.createdAt DESC, o.orderId DESC")
+    List<Long> findHistoryIdsBefore(@Param("userId") Long userId, @Param("createdAt") Timestamp createdAt,
+                                    @Param("orderId") Long orderId, Limit limit);
+
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items WHERE o.orderId IN :orderIds")
+    List<Order> findAllWithItems(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("SELECT o FROM Order o WHERE o.orderStatus NOT IN :terminal OR COALESCE(o.updatedAt, o.createdAt) >= :since " +
+            "ORDER BY o.orderId DESC")
+    List<Order> findRecent(@Param("terminal") Collection<String> terminal, @Param("since") Timestamp since, Limit limit);
+
+//    Status-only compare-and-set: 1 when the order was still in 'from', 0 when another step got there first.
+    @Transactional
+    @Modifying
+    @Query("UPDATE Order o SET o.orderStatus = :to, o.updatedAt = :at WHERE o.orderId = :orderId AND o.orderStatus = :from")
+    int transition(@Param("orderId") Long orderId, @Param("from") String from, @Param("to") String to, @Param("at") Timestamp at);
 }
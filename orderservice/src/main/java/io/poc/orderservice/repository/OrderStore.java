@@ -0,0 +1,31 @@
+package io.poc.orderservice.repository;
+
+import io.poc.orderservice.entity.Order;
+import io.poc.orderservice.model.OrderCursor;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+// Order writes for the reactive order flow. Implementations never block the calling thread, so
+// placeOrder can stay on the WebClient response thread between calls.
+public interface OrderStore {
+
+    Mono<Order> create(Order order);
+
+    // All orders in one transaction.
+    Mono<List<Order>> createAll(List<Order> orders);
+
+    // The order with its items, empty if there is no such order.
+    Mono<Order> find(Long orderId);
+
+    // A page of the user's orders with their items, newest first, continuing after 'before' when it is set.
+    Mono<List<Order>> findHistory(Long userId, OrderCursor before, int limit);
+
+    // Orders without items, newest first: every open order and the terminal ones updated since 'since',
+    // at most limit of them.
+    Mono<List<Order>> findRecent(Timestamp since, int limit);
+
+    // Emits true if the order moved from 'from' to 'to', false if it was no longer in 'from'.
+    Mono<Boolean> transition(Long orderId, String from, String to);
+}
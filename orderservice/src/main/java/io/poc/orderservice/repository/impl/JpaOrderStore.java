@@ -0,0 +1,92 @@
+package io.poc.orderservice.repository.impl;
+
+import io.poc.orderservice.entity.Order;
+import io.poc.orderservice.event.OrderStatusBroadcaster;
+import io.poc.orderservice.model.OrderCursor;
+import io.poc.orderservice.repository.OrderRepository;
+import io.poc.orderservice.repository.OrderStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Runs the blocking OrderRepository on the dedicated persistence scheduler instead of the caller's thread.
+@Component
+@ConditionalOnProperty(name = "order.persistence.mode", havingValue = "jpa", matchIfMissing = true)
+public class JpaOrderStore implements OrderStore {
+
+    private final OrderRepository orderRepository;
+    private final Scheduler scheduler;
+
+    private final Logger log = LoggerFactory.getLogger(JpaOrderStore.class);
+
+    public JpaOrderStore(
+            OrderRepository orderRepository,
+            @Qualifier("orderPersistenceScheduler") Scheduler scheduler
+    ) {
+        this.orderRepository = orderRepository;
+        this.scheduler = scheduler;
+        log.info("Initializing JpaOrderStore");
+    }
+
+    @Override
+    public Mono<Order> create(Order order) {
+        return Mono.fromCallable(() -> orderRepository.save(order))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<List<Order>> createAll(List<Order> orders) {
+        return Mono.fromCallable(() -> orderRepository.saveAll(orders))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Order> find(Long orderId) {
+        return Mono.fromCallable(() -> orderRepository.findWithItems(orderId).orElse(null))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<List<Order>> findHistory(Long userId, OrderCursor before, int limit) {
+        return Mono.fromCallable(() -> {
+                    List<Long> orderIds = before == null
+                            ? orderRepository.findHistoryIds(userId, Limit.of(limit))
+                            : orderRepository.findHistoryIdsBefore(userId, before.createdAt(), before.orderId(), Limit.of(limit));
+                    if (orderIds.isEmpty()) {
+                        return List.<Order>of();
+                    }
+
+//                    The fetch join comes back in no particular order; the seek decided it.
+                    Map<Long, Order> orders = orderRepository.findAllWithItems(orderIds).stream()
+                            .collect(Collectors.toMap(Order::getOrderId, Function.identity()));
+                    return orderIds.stream().map(orders::get).toList();
+                })
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<List<Order>> findRecent(Timestamp since, int limit) {
+        return Mono.fromCallable(() -> orderRepository.findRecent(
+                        OrderStatusBroadcaster.TERMINAL_STATUSES, since, Limit.of(limit)))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Boolean> transition(Long orderId, String from, String to) {
+        return Mono.fromCallable(() ->
+                        orderRepository.transition(orderId, from, to, Timestamp.valueOf(LocalDateTime.now())) == 1)
+                .subscribeOn(scheduler);
+    }
+}
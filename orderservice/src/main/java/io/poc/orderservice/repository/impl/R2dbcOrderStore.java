@@ -0,0 +1,242 @@
+package io.poc.orderservice.repository.impl;
+
+import io.poc.orderservice.entity.Order;
+import io.poc.orderservice.entity.OrderItem;
+import io.poc.orderservice.id.Snowflake;
+import io.poc.orderservice.model.OrderCursor;
+import io.poc.orderservice.repository.OrderStore;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Non-blocking order writes over R2DBC against the same orders/order_item tables JPA maps.
+// The transaction manager stays private: as a bean it would replace the JPA one.
+@Component
+@ConditionalOnProperty(name = "order.persistence.mode", havingValue = "r2dbc")
+public class R2dbcOrderStore implements OrderStore {
+
+    private static final String INSERT_ORDER =
+            "INSERT INTO orders (order_id, user_id, order_value, order_status, email, created_at, updated_at) " +
+            "VALUES (:orderId, :userId, :orderValue, :orderStatus, :email, :createdAt, :updatedAt)";
+
+    private static final String INSERT_ITEM =
+            "INSERT INTO order_item (id, order_id, food_id, quantity, price) VALUES (:id, :orderId, :foodId, :quantity, :price)";
+
+    private static final String SELECT_ORDER =
+            "SELECT order_id, user_id, order_value, order_status, email, created_at, updated_at " +
+            "FROM orders WHERE order_id = :orderId";
+
+    private static final String SELECT_RECENT =
+            "SELECT order_id, user_id, order_value, order_status, email, created_at, updated_at FROM orders " +
+            "WHERE order_status NOT IN ('COMPLETED', 'CANCELLED', 'FAILED') OR COALESCE(updated_at, created_at) >= :since " +
+            "ORDER BY order_id DESC LIMIT :limit";
+
+    private static final String SELECT_HISTORY_IDS =
+            "SELECT order_id FROM orders WHERE user_id = :userId ORDER BY created_at DESC, order_id DESC LIMIT :limit";
+
+    private static final String SELECT_HISTORY_IDS_BEFORE =
+            "SELECT order_id FROM orders WHERE user_id = :userId " +
+            "AND (created_at < :createdAt OR (created_at = :createdAt AND order_id < :orderId)) " +
+            "ORDER BY created_at DESC, order_id DESC LIMIT :limit";
+
+    private static final String SELECT_ORDERS =
+            "SELECT order_id, user_id, order_value, order_status, email, created_at, updated_at " +
+            "FROM orders WHERE order_id IN (:orderIds)";
+
+    private static final String SELECT_ITEMS_OF_ORDERS =
+            "SELECT id, order_id, food_id, quantity, price FROM order_item WHERE order_id IN (:orderIds)";
+
+    private static final String SELECT_ITEMS =
+            "SELECT id, food_id, quantity, price FROM order_item WHERE order_id = :orderId";
+
+    private static final String TRANSITION =
+            "UPDATE orders SET order_status = :to, updated_at = :updatedAt WHERE order_id = :orderId AND order_status = :from";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final Snowflake snowflake;
+
+    private final Logger log = LoggerFactory.getLogger(R2dbcOrderStore.class);
+
+    public R2dbcOrderStore(
+            ConnectionFactory orderConnectionFactory,
+            @Value("${order.snowflake.node-id:}") String nodeId
+    ) {
+        this.databaseClient = DatabaseClient.create(orderConnectionFactory);
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(orderConnectionFactory));
+        this.snowflake = Snowflake.forNode(nodeId);
+        log.info("Initializing R2dbcOrderStore");
+    }
+
+    @Override
+    public Mono<Order> create(Order order) {
+        return transactionalOperator.transactional(insertWithItems(order));
+    }
+
+    @Override
+    public Mono<List<Order>> createAll(List<Order> orders) {
+        return transactionalOperator.transactional(Flux.fromIterable(orders)
+                .concatMap(this::insertWithItems)
+                .collectList());
+    }
+
+    @Override
+    public Mono<Order> find(Long orderId) {
+        return databaseClient.sql(SELECT_ORDER)
+                .bind("orderId", orderId)
+                .map(R2dbcOrderStore::toOrder)
+                .one()
+                .flatMap(order -> databaseClient.sql(SELECT_ITEMS)
+                        .bind("orderId", orderId)
+                        .map(row -> OrderItem.builder()
+                                .id(row.get("id", Long.class))
+                                .order(order)
+                                .foodId(row.get("food_id", Long.class))
+                                .quantity(row.get("quantity", Integer.class))
+                                .price(row.get("price", Long.class))
+                                .build())
+                        .all()
+                        .collectList()
+                        .map(items -> {
+                            order.setItems(items);
+                            return order;
+                        }));
+    }
+
+    @Override
+    public Mono<List<Order>> findHistory(Long userId, OrderCursor before, int limit) {
+        DatabaseClient.GenericExecuteSpec seek = before == null
+                ? databaseClient.sql(SELECT_HISTORY_IDS)
+                : databaseClient.sql(SELECT_HISTORY_IDS_BEFORE)
+                        .bind("createdAt", before.createdAt().toLocalDateTime())
+                        .bind("orderId", before.orderId());
+
+        return seek.bind("userId", userId)
+                .bind("limit", limit)
+                .map(row -> row.get("order_id", Long.class))
+                .all()
+                .collectList()
+                .flatMap(orderIds -> orderIds.isEmpty() ? Mono.just(List.<Order>of()) : findWithItems(orderIds));
+    }
+
+    @Override
+    public Mono<List<Order>> findRecent(Timestamp since, int limit) {
+        return databaseClient.sql(SELECT_RECENT)
+                .bind("since", since.toLocalDateTime())
+                .bind("limit", limit)
+                .map(R2dbcOrderStore::toOrder)
+                .all()
+                .collectList();
+    }
+
+    @Override
+    public Mono<Boolean> transition(Long orderId, String from, String to) {
+        return databaseClient.sql(TRANSITION)
+                .bind("to", to)
+                .bind("updatedAt", LocalDateTime.now())
+                .bind("orderId", orderId)
+                .bind("from", from)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows == 1);
+    }
+
+    // The orders in the order of orderIds, each with its items, in two queries for the whole page.
+    private Mono<List<Order>> findWithItems(List<Long> orderIds) {
+        Mono<Map<Long, Order>> orders = databaseClient.sql(SELECT_ORDERS)
+                .bind("orderIds", orderIds)
+                .map(R2dbcOrderStore::toOrder)
+                .all()
+                .collectMap(Order::getOrderId);
+
+        Mono<Map<Long, Collection<OrderItem>>> items = databaseClient.sql(SELECT_ITEMS_OF_ORDERS)
+                .bind("orderIds", orderIds)
+                .map(row -> Map.entry(row.get("order_id", Long.class), OrderItem.builder()
+                        .id(row.get("id", Long.class))
+                        .foodId(row.get("food_id", Long.class))
+                        .quantity(row.get("quantity", Integer.class))
+                        .price(row.get("price", Long.class))
+                        .build()))
+                .all()
+                .collectMultimap(Map.Entry::getKey, Map.Entry::getValue);
+
+        return Mono.zip(orders, items, (byId, itemsById) -> orderIds.stream()
+                .map(byId::get)
+                .map(order -> {
+                    List<OrderItem> orderItems = new ArrayList<>(itemsById.getOrDefault(order.getOrderId(), List.of()));
+                    orderItems.forEach(item -> item.setOrder(order));
+                    order.setItems(orderItems);
+                    return order;
+                })
+                .toList());
+    }
+
+    private Mono<Order> insertWithItems(Order order) {
+        return Mono.defer(() -> {
+            order.setOrderId(snowflake.nextId());
+
+            return insertOrder(order)
+                    .thenMany(Flux.fromIterable(order.getItems()))
+                    .concatMap(item -> insertItem(order.getOrderId(), item))
+                    .then(Mono.just(order));
+        });
+    }
+
+    private Mono<Long> insertOrder(Order order) {
+        return databaseClient.sql(INSERT_ORDER)
+                .bind("orderId", order.getOrderId())
+                .bind("userId", order.getUserId())
+                .bind("orderValue", order.getOrderValue())
+                .bind("orderStatus", order.getOrderStatus())
+                .bind("email", order.getEmail())
+                .bind("createdAt", order.getCreatedAt().toLocalDateTime())
+                .bindNull("updatedAt", LocalDateTime.class)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private Mono<Long> insertItem(Long orderId, OrderItem item) {
+        item.setId(snowflake.nextId());
+
+        return databaseClient.sql(INSERT_ITEM)
+                .bind("id", item.getId())
+                .bind("orderId", orderId)
+                .bind("foodId", item.getFoodId())
+                .bind("quantity", item.getQuantity())
+                .bind("price", item.getPrice())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static Order toOrder(Readable row) {
+        return Order.builder()
+                .orderId(row.get("order_id", Long.class))
+                .userId(row.get("user_id", Long.class))
+                .orderValue(row.get("order_value", Long.class))
+                .orderStatus(row.get("order_status", String.class))
+                .email(row.get("email", String.class))
+                .createdAt(toTimestamp(row.get("created_at", LocalDateTime.class)))
+                .updatedAt(toTimestamp(row.get("updated_at", LocalDateTime.class)))
+                .build();
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+}
@@ -1,14 +1,28 @@
 package io.poc.orderservice.service;
 
 import io.poc.orderservice.model.FoodDto;
+import io.poc.orderservice.model.OrderHistoryEntry;
 import io.poc.orderservice.model.OrderDto;
+import io.poc.orderservice.model.OrderStatusEvent;
+import io.poc.orderservice.model.OrderSummary;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
 
 public interface OrderService {
 
-    List<FoodDto> menu();
+    Mono<List<FoodDto>> menu();
 
     Mono<OrderDto> placeOrder(OrderDto order);
+
+    Mono<OrderDto> acceptOrder(OrderDto order);
+
+    Mono<OrderSummary> getOrder(Long orderId);
+
+    Mono<List<OrderSummary>> recentOrders(Long userId, int limit);
+
+    Flux<OrderHistoryEntry> orderHistory(Long userId, String cursor, int limit);
+
+    Flux<OrderStatusEvent> orderEvents(Long orderId);
 }
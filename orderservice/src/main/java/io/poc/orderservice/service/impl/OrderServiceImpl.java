@@ -1,56 +1,87 @@
 package io.poc.orderservice.service.impl;
 
+import io.poc.orderservice.client.InventoryClient;
+import io.poc.orderservice.client.PaymentClient;
 import io.poc.orderservice.entity.Order;
 import io.poc.orderservice.entity.OrderItem;
+import io.poc.orderservice.event.OrderStatusBroadcaster;
+import io.poc.orderservice.exception.OrderNotFoundException;
+import io.poc.orderservice.exception.OrderTransitionException;
+import io.poc.orderservice.intake.AdmittedOrder;
+import io.poc.orderservice.intake.OrderIntake;
+import io.poc.orderservice.menu.MenuCache;
+import io.poc.orderservice.menu.MenuReplica;
 import io.poc.orderservice.model.*;
+import io.poc.orderservice.outbox.OutboxSaga;
+import io.poc.orderservice.projection.OrderStatusProjection;
 import io.poc.orderservice.repository.OrderItemRepository;
-import io.poc.orderservice.repository.OrderRepository;
+import io.poc.orderservice.repository.OrderStore;
 import io.poc.orderservice.service.OrderService;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpMethod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class OrderServiceImpl implements OrderService {
 
-    @Value("${service.inventory}")
-    private String INVENTORY_SERVICE;
+    private static final int MAX_RECENT_ORDERS = 100;
+    private static final int MAX_HISTORY_PAGE = 1000;
+    private static final int HISTORY_CHUNK = 100;
 
-    @Value("${service.payment}")
-    private String PAYMENT_SERVICE;
+    private final MenuCache menuCache;
+    private final OrderStore orderStore;
+    private final InventoryClient inventoryClient;
+    private final PaymentClient paymentClient;
+    private final ObjectProvider<MenuReplica> menuReplica;
+    private final ObjectProvider<OrderIntake> orderIntake;
+    private final ObjectProvider<OutboxSaga> outboxSaga;
+    private final OrderStatusBroadcaster orderStatusBroadcaster;
+    private final OrderStatusProjection orderStatusProjection;
 
-    private final RestTemplate restTemplate;
-    private final WebClient webClient;
-    private final OrderRepository orderRepository;
+    private final Logger log = LoggerFactory.getLogger(OrderServiceImpl.class);
 
     public OrderServiceImpl(
-            RestTemplate restTemplate,
-            WebClient webClient,
-            OrderRepository orderRepository,
-            OrderItemRepository orderItemRepository
+            MenuCache menuCache,
+            OrderStore orderStore,
+            OrderItemRepository orderItemRepository,
+            InventoryClient inventoryClient,
+            PaymentClient paymentClient,
+            ObjectProvider<MenuReplica> menuReplica,
+            ObjectProvider<OrderIntake> orderIntake,
+            ObjectProvider<OutboxSaga> outboxSaga,
+            OrderStatusBroadcaster orderStatusBroadcaster,
+            OrderStatusProjection orderStatusProjection
     ) {
-        this.restTemplate = restTemplate;
-        this.webClient = webClient;
-        this.orderRepository = orderRepository;
+        this.menuCache = menuCache;
+        this.orderStore = orderStore;
+        this.inventoryClient = inventoryClient;
+        this.paymentClient = paymentClient;
+        this.menuReplica = menuReplica;
+        this.orderIntake = orderIntake;
+        this.outboxSaga = outboxSaga;
+        this.orderStatusBroadcaster = orderStatusBroadcaster;
+        this.orderStatusProjection = orderStatusProjection;
     }
 
     @Override
-    public List<FoodDto> menu() {
-        return restTemplate.exchange(
-                INVENTORY_SERVICE + "/menu",
-                HttpMethod.GET,
-                HttpEntity.EMPTY,
-                new ParameterizedTypeReference<List<FoodDto>>() {}
-        ).getBody();
+    public Mono<List<FoodDto>> menu() {
+
+//        Served from memory while the replica is connected to inventory's stock stream, otherwise from
+//        the stale-while-revalidate cache in front of inventory's /menu.
+        MenuReplica replica = menuReplica.getIfAvailable();
+        if (replica != null && replica.isReady()) {
+            return Mono.just(replica.menu());
+        }
+
+        return menuCache.menu();
     }
 
     public Mono<OrderDto> placeOrder(OrderDto order) {
@@ -60,80 +91,270 @@ public class OrderServiceImpl implements OrderService {
         order.setOrderStatus("CREATED");
         Order orderToPersist = setOrderStatus(order, "CREATED", orderItemsList);
 
-//        Database calls are blocking - save 1.
-        Order savedOrder = orderRepository.save(orderToPersist);
+//        Every save goes through the OrderStore, which keeps the database off the WebClient response
+//        threads - save 1. With intake batching on, the insert and the reserve call are shared with
+//        the other orders of the same batch. Later steps only move the status column.
+        OrderIntake intake = orderIntake.getIfAvailable();
+        Mono<AdmittedOrder> admission = intake != null
+                ? intake.admit(orderToPersist, order)
+                : orderStore.create(orderToPersist).flatMap(savedOrder -> {
+
+//                    order ID is set to order DTO since the ID is auto gen.
+                    order.setOrderId(savedOrder.getOrderId());
+                    return inventoryClient.reserve(order)
+                            .map(result -> new AdmittedOrder(savedOrder, result));
+                });
+
+        return runSaga(order, admission.doOnNext(admitted -> orderStatusProjection.created(admitted.order())));
+    }
+
+//    Answers as soon as the CREATED row is stored; the rest of the saga runs detached and clients follow
+//    it through getOrder or orderEvents.
+    @Override
+    public Mono<OrderDto> acceptOrder(OrderDto order) {
+        log.info("Entering OrderServiceImpl::acceptOrder()");
+
+        List<OrderItem> orderItemsList = buildOrderItems(order);
+
+        order.setOrderStatus("CREATED");
+        Order orderToPersist = setOrderStatus(order, "CREATED", orderItemsList);
+
+//        With the outbox on, the order and its first saga step commit together and the relay drives
+//        the rest, so a restart in the middle of the saga picks up where it stopped.
+        OutboxSaga saga = outboxSaga.getIfAvailable();
+        if (saga != null) {
+            return saga.start(orderToPersist, order).map(this::toOrderDto);
+        }
+
+        return orderStore.create(orderToPersist).map(savedOrder -> {
+
+            order.setOrderId(savedOrder.getOrderId());
+            orderStatusProjection.created(savedOrder);
+            OrderDto accepted = toOrderDto(savedOrder);
+
+            runSaga(order, inventoryClient.reserve(order).map(result -> new AdmittedOrder(savedOrder, result)))
+                    .onErrorResume(e -> {
+                        log.error("Order {} failed in the background", savedOrder.getOrderId(), e);
+                        return compensate(savedOrder);
+                    })
+                    .subscribe();
+
+            log.info("Exiting OrderServiceImpl::acceptOrder() - order {} accepted", savedOrder.getOrderId());
+            return accepted;
+        });
+    }
 
+//    Fails an order whose detached saga broke off: from CREATED when the reservation never answered, from
+//    RESERVED when payment did not, and releases what inventory may hold for it either way (a reserve
+//    whose answer was lost can still have taken stock). An order that already finished is left alone.
+    private Mono<OrderDto> compensate(Order order) {
+        return transition(order, "CREATED", "FAILED")
+                .onErrorResume(OrderTransitionException.class, e -> transition(order, "RESERVED", "FAILED"))
+                .flatMap(failed -> inventoryClient.cancel(failed.getOrderId()))
+                .then(Mono.<OrderDto>empty())
+                .onErrorResume(e -> {
+                    log.warn("Order {} could not be compensated, leaving it to the reservation expiry: {}",
+                            order.getOrderId(), e.toString());
+                    return Mono.empty();
+                });
+    }
 
-//        order ID is set to order DTO since the ID is auto gen.
-        order.setOrderId(savedOrder.getOrderId());
+//    Served from the status projection; only orders it does not hold, or holds as still open, reach the
+//    database. Another instance (its saga or outbox relay) may have moved an open order on since.
+    @Override
+    public Mono<OrderSummary> getOrder(Long orderId) {
+        return Mono.justOrEmpty(orderStatusProjection.find(orderId))
+                .flatMap(summary -> isTerminal(summary) ? Mono.just(summary) : refresh(orderId))
+                .switchIfEmpty(orderStore.find(orderId).map(this::toOrderSummary));
+    }
+
+    @Override
+    public Mono<List<OrderSummary>> recentOrders(Long userId, int limit) {
+        return Flux.fromIterable(orderStatusProjection.recentByUser(userId, Math.clamp(limit, 1, MAX_RECENT_ORDERS)))
+                .flatMapSequential(summary -> isTerminal(summary)
+                        ? Mono.just(summary)
+                        : refresh(summary.getOrderId()).defaultIfEmpty(summary))
+                .collectList();
+    }
+
+    // The stored order, also handed to the projection so its copy catches up.
+    private Mono<OrderSummary> refresh(Long orderId) {
+        return orderStore.find(orderId)
+                .doOnNext(order -> orderStatusProjection.transitioned(order.getOrderId(), order.getOrderStatus(),
+                        order.getUpdatedAt() != null ? order.getUpdatedAt() : order.getCreatedAt()))
+                .map(this::toOrderSummary);
+    }
+
+    private static boolean isTerminal(OrderSummary summary) {
+        return OrderStatusBroadcaster.TERMINAL_STATUSES.contains(summary.getOrderStatus());
+    }
+
+//    Keyset pages never count past skipped rows, so page 1000 costs what page 1 does. A large page is read
+//    in chunks and streamed out as each chunk arrives instead of being held whole.
+    @Override
+    public Flux<OrderHistoryEntry> orderHistory(Long userId, String cursor, int limit) {
+        log.info("Entering OrderServiceImpl::orderHistory() for user {}", userId);
+
+        OrderCursor before = cursor == null || cursor.isBlank() ? null : OrderCursor.decode(cursor);
+        return history(userId, before, Math.clamp(limit, 1, MAX_HISTORY_PAGE));
+    }
 
-        return reservation(order).flatMap(result -> {
+    private Flux<OrderHistoryEntry> history(Long userId, OrderCursor before, int remaining) {
+        int chunk = Math.min(remaining, HISTORY_CHUNK);
+
+        return orderStore.findHistory(userId, before, chunk).flatMapMany(orders -> {
+            Flux<OrderHistoryEntry> entries = Flux.fromIterable(orders).map(this::toHistoryEntry);
+            if (orders.size() < chunk || remaining == chunk) {
+                return entries;
+            }
+
+            OrderCursor last = OrderCursor.after(orders.getLast());
+            return entries.concatWith(Flux.defer(() -> history(userId, last, remaining - chunk)));
+        });
+    }
+
+//    The watcher is subscribed before the current status is read, and events never move an order back to
+//    an earlier step, so whichever of the two arrives first the client sees each step at most once.
+    @Override
+    public Flux<OrderStatusEvent> orderEvents(Long orderId) {
+        Mono<OrderStatusEvent> current = getOrder(orderId)
+                .switchIfEmpty(Mono.error(new OrderNotFoundException("Order " + orderId + " not found")))
+                .map(order -> OrderStatusEvent.builder()
+                        .orderId(order.getOrderId())
+                        .orderStatus(order.getOrderStatus())
+                        .at(order.getUpdatedAt() != null ? order.getUpdatedAt() : order.getCreatedAt())
+                        .build());
+
+        return Flux.defer(() -> {
+            AtomicInteger lastStep = new AtomicInteger(-1);
+
+            return Flux.merge(orderStatusBroadcaster.watch(orderId), current)
+                    .filter(event -> {
+                        int step = step(event.getOrderStatus());
+                        return lastStep.getAndAccumulate(step, Math::max) < step;
+                    })
+                    .takeUntil(event -> OrderStatusBroadcaster.TERMINAL_STATUSES.contains(event.getOrderStatus()));
+        });
+    }
+
+    private Mono<OrderDto> runSaga(OrderDto order, Mono<AdmittedOrder> admission) {
+
+        return admission.flatMap(admitted -> {
+
+            Order savedOrder = admitted.order();
+            ReservationResult result = admitted.reservation();
 
             if (result.getReservationStatus().equalsIgnoreCase("RESERVED")) {
 
 //                After reservation if reservation status is 'RESERVED' - save 2.
-//                Order orderToReserve = setOrderStatus(order, "RESERVED", orderItemsList);
-                savedOrder.setOrderStatus("RESERVED");
-                Order reservedOrder = orderRepository.save(savedOrder);
-
-                order.setOrderStatus(reservedOrder.getOrderStatus());
-                Mono<PaymentDto> payment = pay(order);
-
-                return payment.flatMap(pay -> {
-
-                    if (!pay.getStatus().equalsIgnoreCase("PAYMENT_CANCELLED")) {
-
-//                        Payment completed and order placed - save 3.
-                        reservedOrder.setOrderStatus("COMPLETED");
-                        Order completedOrder = orderRepository.save(reservedOrder);
-
-                        return Mono.just(
-                                OrderDto.builder()
-                                        .items(buildOrderItemDtos(completedOrder.getItems()))
-                                        .orderValue(completedOrder.getOrderValue())
-                                        .orderStatus(completedOrder.getOrderStatus())
-                                        .userId(completedOrder.getUserId())
-                                        .email(completedOrder.getEmail())
-                                        .orderId(completedOrder.getOrderId())
-                                        .build()
-                        );
-                    }
-
-//                    Payment failed and order cancelled
-                    reservedOrder.setOrderStatus("CANCELLED");
-                    Order cancelledOrder = orderRepository.save(reservedOrder);
-
-                    return Mono.just(
-                            OrderDto.builder()
-                                    .orderId(cancelledOrder.getOrderId())
-                                    .items(buildOrderItemDtos(cancelledOrder.getItems()))
-                                    .orderValue(cancelledOrder.getOrderValue())
-                                    .orderStatus(cancelledOrder.getOrderStatus())
-                                    .userId(cancelledOrder.getUserId())
-                                    .email(cancelledOrder.getEmail())
-                                    .build()
-                    );
+                return transition(savedOrder, "CREATED", "RESERVED").flatMap(reservedOrder -> {
+
+                    order.setOrderStatus(reservedOrder.getOrderStatus());
+                    Mono<PaymentDto> payment = paymentClient.pay(order);
+
+                    return payment.flatMap(pay -> {
+
+                        if (!pay.getStatus().equalsIgnoreCase("PAYMENT_CANCELLED")) {
+
+//                            Payment completed and order placed - save 3.
+                            return transition(reservedOrder, "RESERVED", "COMPLETED")
+                                    .map(completedOrder -> OrderDto.builder()
+                                            .items(buildOrderItemDtos(completedOrder.getItems()))
+                                            .orderValue(completedOrder.getOrderValue())
+                                            .orderStatus(completedOrder.getOrderStatus())
+                                            .userId(completedOrder.getUserId())
+                                            .email(completedOrder.getEmail())
+                                            .orderId(completedOrder.getOrderId())
+                                            .build());
+                        }
+
+//                        Payment failed and order cancelled
+                        return transition(reservedOrder, "RESERVED", "CANCELLED")
+                                .map(cancelledOrder -> OrderDto.builder()
+                                        .orderId(cancelledOrder.getOrderId())
+                                        .items(buildOrderItemDtos(cancelledOrder.getItems()))
+                                        .orderValue(cancelledOrder.getOrderValue())
+                                        .orderStatus(cancelledOrder.getOrderStatus())
+                                        .userId(cancelledOrder.getUserId())
+                                        .email(cancelledOrder.getEmail())
+                                        .build());
+                    });
                 });
             }
 
 
             order.setOrderStatus("RESERVATION_FAILED");
 
-//            Order not reserved and failed to be placed - save 6.
-            Order failedOrder = setOrderStatus(order, "FAILED", orderItemsList);
-            Order failed = orderRepository.save(failedOrder);
+//            Order not reserved and failed to be placed - the CREATED row itself becomes FAILED.
+            return transition(savedOrder, "CREATED", "FAILED")
+                    .map(failed -> OrderDto.builder()
+                            .orderId(failed.getOrderId())
+                            .items(buildOrderItemDtos(failed.getItems()))
+                            .userId(failed.getUserId())
+                            .orderValue(failed.getOrderValue())
+                            .orderStatus(failed.getOrderStatus())
+                            .email(failed.getEmail())
+                            .build());
+        });
+    }
 
+//    One conditional UPDATE per saga step; losing the race to a duplicate step fails the flow instead of
+//    overwriting a status that has already moved on.
+    private Mono<Order> transition(Order order, String from, String to) {
+        return orderStore.transition(order.getOrderId(), from, to)
+                .flatMap(applied -> {
+                    if (!applied) {
+                        return Mono.error(new OrderTransitionException(
+                                "Order " + order.getOrderId() + " is no longer " + from + ", cannot move to " + to));
+                    }
 
-            return Mono.just(OrderDto.builder()
-                    .orderId(failed.getOrderId())
-                    .items(buildOrderItemDtos(failed.getItems()))
-                    .userId(failed.getUserId())
-                    .orderValue(failed.getOrderValue())
-                    .orderStatus(failed.getOrderStatus())
-                    .email(failed.getEmail())
-                    .build()
-            );
-        });
+                    order.setOrderStatus(to);
+                    orderStatusProjection.transitioned(order.getOrderId(), to, Timestamp.valueOf(LocalDateTime.now()));
+                    orderStatusBroadcaster.publish(order.getOrderId(), to);
+                    return Mono.just(order);
+                });
+    }
+
+    private static int step(String status) {
+        return switch (status) {
+            case "CREATED" -> 0;
+            case "RESERVED" -> 1;
+            default -> 2;
+        };
+    }
+
+    private OrderHistoryEntry toHistoryEntry(Order order) {
+        return OrderHistoryEntry.builder()
+                .orderId(order.getOrderId())
+                .orderValue(order.getOrderValue())
+                .orderStatus(order.getOrderStatus())
+                .createdAt(order.getCreatedAt())
+                .updatedAt(order.getUpdatedAt())
+                .items(buildOrderItemDtos(order.getItems()))
+                .cursor(OrderCursor.after(order).encode())
+                .build();
+    }
+
+    private OrderSummary toOrderSummary(Order order) {
+        return OrderSummary.builder()
+                .orderId(order.getOrderId())
+                .userId(order.getUserId())
+                .orderValue(order.getOrderValue())
+                .orderStatus(order.getOrderStatus())
+                .createdAt(order.getCreatedAt())
+                .updatedAt(order.getUpdatedAt())
+                .build();
+    }
+
+    private OrderDto toOrderDto(Order order) {
+        return OrderDto.builder()
+                .orderId(order.getOrderId())
+                .items(buildOrderItemDtos(order.getItems()))
+                .userId(order.getUserId())
+                .orderValue(order.getOrderValue())
+                .orderStatus(order.getOrderStatus())
+                .email(order.getEmail())
+                .build();
     }
 
     private List<OrderItem> buildOrderItems(OrderDto orderRequest) {
@@ -159,7 +380,7 @@ public class OrderServiceImpl implements OrderService {
 
     private Order setOrderStatus(OrderDto orderDto, String status, List<OrderItem> items) {
 
-        return Order.builder()
+        Order order = Order.builder()
                 .items(items)
                 .userId(orderDto.getUserId())
                 .orderValue(orderDto.getOrderValue())
@@ -167,21 +388,9 @@ public class OrderServiceImpl implements OrderService {
                 .email(orderDto.getEmail())
                 .createdAt(Timestamp.valueOf(LocalDateTime.now()))
                 .build();
-    }
-
-    Mono<ReservationResult> reservation(OrderDto orderDto) {
-        return webClient.post()
-                .uri(INVENTORY_SERVICE + "/reserve")
-                .bodyValue(orderDto)
-                .retrieve()
-                .bodyToMono(ReservationResult.class);
-    }
 
-    private Mono<PaymentDto> pay(OrderDto order) {
-        return webClient.post()
-                .uri(PAYMENT_SERVICE + "/pay")
-                .bodyValue(order)
-                .exchangeToMono(response ->
-                        response.bodyToMono(PaymentDto.class));
+//        Items own the order_id column, without the back-reference they are written with a null order.
+        items.forEach(item -> item.setOrder(order));
+        return order;
     }
 }
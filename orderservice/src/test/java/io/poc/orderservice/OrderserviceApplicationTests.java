@@ -3,7 +3,7 @@ package io.poc.orderservice;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "order.snowflake.node-id=0")
 class OrderserviceApplicationTests {
 
     @Test
@@ -0,0 +1,109 @@
+package io.poc.orderservice.repository;
+
+import io.poc.orderservice.config.PersistenceConfig;
+import io.poc.orderservice.entity.Order;
+import io.poc.orderservice.repository.impl.JpaOrderStore;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Drives 500 orders (one insert, two transitions) from non-blocking threads, standing in for Netty
+// event loops, against a repository that takes 20ms per statement while a probe keeps ticking on those
+// threads. The writes must all land on the persistence scheduler and the probe must keep running mid-run.
+class OrderStoreLoadTest {
+
+    private static final int ORDERS = 500;
+    private static final long SAVE_MILLIS = 20;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"bounded", "virtual"})
+    void writesNeverBlockEventLoopThreads(String schedulerType) {
+        List<String> blockedThreads = new CopyOnWriteArrayList<>();
+        AtomicLong ids = new AtomicLong();
+        AtomicInteger writes = new AtomicInteger();
+
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            if (Schedulers.isInNonBlockingThread()) {
+                blockedThreads.add(Thread.currentThread().getName());
+            }
+            Thread.sleep(SAVE_MILLIS);
+            writes.incrementAndGet();
+
+            Order order = invocation.getArgument(0);
+            order.setOrderId(ids.incrementAndGet());
+            return order;
+        });
+        when(orderRepository.transition(anyLong(), anyString(), anyString(), any(Timestamp.class))).thenAnswer(invocation -> {
+            if (Schedulers.isInNonBlockingThread()) {
+                blockedThreads.add(Thread.currentThread().getName());
+            }
+            Thread.sleep(SAVE_MILLIS);
+            writes.incrementAndGet();
+            return 1;
+        });
+
+        Scheduler persistence = new PersistenceConfig().orderPersistenceScheduler(schedulerType, 16, 10_000);
+        Scheduler eventLoop = Schedulers.newParallel("event-loop", 4);
+        OrderStore orderStore = new JpaOrderStore(orderRepository, persistence);
+
+        try {
+            List<Integer> writesSeenByProbe = new CopyOnWriteArrayList<>();
+            Disposable probe = Flux.interval(Duration.ofMillis(5), eventLoop)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> Mono.fromCallable(writes::get)
+                            .subscribeOn(eventLoop))
+                    .subscribe(writesSeenByProbe::add);
+
+            List<Boolean> completed = Flux.range(0, ORDERS)
+                    .flatMap(i -> Mono.fromCallable(OrderStoreLoadTest::newOrder)
+                            .subscribeOn(eventLoop)
+                            .flatMap(orderStore::create)
+                            .flatMap(order -> orderStore.transition(order.getOrderId(), "CREATED", "RESERVED")
+                                    .then(orderStore.transition(order.getOrderId(), "RESERVED", "COMPLETED"))), ORDERS)
+                    .collectList()
+                    .block(Duration.ofSeconds(60));
+            probe.dispose();
+
+            assertThat(completed).hasSize(ORDERS);
+            assertThat(completed).containsOnly(true);
+            assertThat(blockedThreads).isEmpty();
+
+//            3 x 500 statements of 20ms would hold 4 event-loop threads for seconds if they ran there; instead
+//            the probe must have run between writes, not only before the first or after the last one.
+            assertThat(writes).hasValue(ORDERS * 3);
+            assertThat(writesSeenByProbe).anyMatch(seen -> seen > 0 && seen < ORDERS * 3);
+        } finally {
+            persistence.dispose();
+            eventLoop.dispose();
+        }
+    }
+
+    private static Order newOrder() {
+        return Order.builder()
+                .items(new ArrayList<>())
+                .userId(1L)
+                .orderValue(100L)
+                .orderStatus("CREATED")
+                .build();
+    }
+}
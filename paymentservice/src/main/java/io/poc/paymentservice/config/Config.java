@@ -1,20 +1,73 @@
 package io.poc.paymentservice.config;
 
+import io.netty.channel.ChannelOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.regex.Pattern;
 
 @Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
 public class Config {
 
+//    Numeric path segments become {id} in the request metrics' uri tag, one series per endpoint.
+    private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+    private final HttpClientProperties httpClientProperties;
     private final Logger log = LoggerFactory.getLogger(Config.class);
 
+    public Config(HttpClientProperties httpClientProperties) {
+        this.httpClientProperties = httpClientProperties;
+    }
+
+//    Inventory gets its own named pool, so settlement calls queue on it rather than on a shared default
+//    one. It publishes reactor.netty.connection.provider.* metrics (active, idle, pending, acquire time).
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider inventoryConnectionProvider() {
+        HttpClientProperties.Downstream downstream = httpClientProperties.downstream("inventory");
+        log.info("Connection pool for inventory: {}", downstream);
+
+        return ConnectionProvider.builder("inventory")
+                .maxConnections(downstream.getMaxConnections())
+                .pendingAcquireMaxCount(downstream.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(downstream.getPendingAcquireTimeout())
+                .maxIdleTime(downstream.getMaxIdleTime())
+                .maxLifeTime(downstream.getMaxLifeTime())
+                .evictInBackground(downstream.getEvictInBackground())
+                .metrics(true)
+                .build();
+    }
+
     @Bean
-    public WebClient webClient() {
-        log.info("WebClient");
-        return WebClient.builder()
+    public WebClient inventoryWebClient(
+            WebClient.Builder builder,
+            @Qualifier("inventoryConnectionProvider") ConnectionProvider connectionProvider
+    ) {
+        HttpClientProperties.Downstream downstream = httpClientProperties.downstream("inventory");
+
+//        h2c with HTTP/1.1 fallback: the service URLs are plain http.
+        HttpProtocol[] protocols = downstream.isHttp2()
+                ? new HttpProtocol[]{HttpProtocol.H2C, HttpProtocol.HTTP11}
+                : new HttpProtocol[]{HttpProtocol.HTTP11};
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) downstream.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .protocol(protocols)
+                .responseTimeout(downstream.getResponseTimeout())
+                .metrics(true, uri -> ID_SEGMENT.matcher(uri).replaceAll("/{id}"));
+
+        return builder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .build();
     }
 }
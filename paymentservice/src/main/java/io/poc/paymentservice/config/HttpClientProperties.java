@@ -0,0 +1,46 @@
+package io.poc.paymentservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Outbound HTTP settings per downstream, http.clients.<name>.*; a downstream without entries gets the defaults.
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "http")
+public class HttpClientProperties {
+
+    private Map<String, Downstream> clients = new HashMap<>();
+
+    public Downstream downstream(String name) {
+        return clients.getOrDefault(name, new Downstream());
+    }
+
+    @Getter
+    @Setter
+    @ToString
+    public static class Downstream {
+
+        private int maxConnections = 100;
+
+//        Callers waiting for a connection; beyond this, or after pending-acquire-timeout, the call fails fast.
+        private int pendingAcquireMaxCount = 1000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+
+        private Duration connectTimeout = Duration.ofSeconds(1);
+
+//        Per-call deadline: the longest gap allowed between reads of a response.
+        private Duration responseTimeout = Duration.ofSeconds(5);
+
+        private boolean http2 = false;
+    }
+}
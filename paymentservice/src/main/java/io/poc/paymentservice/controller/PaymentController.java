@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
@@ -25,12 +26,15 @@ public class PaymentController {
     }
 
     @PostMapping(path = "pay")
-    public ResponseEntity<Mono<PaymentDto>> payment(@RequestBody OrderDto order) {
+    public ResponseEntity<Mono<PaymentDto>> payment(
+            @RequestBody OrderDto order,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
         log.info("Entering PaymentController::makePayment");
 
         log.info("Order details: {}", order);
 
-        Mono<PaymentDto> paymentDto = paymentService.pay(order);
+        Mono<PaymentDto> paymentDto = paymentService.pay(order, idempotencyKey);
         log.info("Exiting PaymentController::makePayment");
 
         return ResponseEntity.ok(paymentDto);
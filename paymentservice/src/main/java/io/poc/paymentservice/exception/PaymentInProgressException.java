@@ -0,0 +1,8 @@
+package io.poc.paymentservice.exception;
+
+public class PaymentInProgressException extends RuntimeException {
+
+    public PaymentInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package io.poc.paymentservice.exception.handler;
+
+import io.poc.paymentservice.exception.PaymentInProgressException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+@ControllerAdvice
+public class GlobalHandler {
+
+//    The key's payment is still PENDING; the caller retries later with the same key.
+    @ExceptionHandler(PaymentInProgressException.class)
+    public ResponseEntity<ErrorResponse> paymentInProgressException(){
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+}
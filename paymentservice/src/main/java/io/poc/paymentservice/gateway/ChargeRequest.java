@@ -0,0 +1,4 @@
+package io.poc.paymentservice.gateway;
+
+public record ChargeRequest(Long orderId, Long amount, String paymentType) {
+}
@@ -0,0 +1,4 @@
+package io.poc.paymentservice.gateway;
+
+public record ChargeResult(Long orderId, boolean approved, String reference) {
+}
@@ -0,0 +1,10 @@
+package io.poc.paymentservice.gateway;
+
+import java.util.function.Consumer;
+
+// Where charges are actually made. charge returns at once; the outcome is reported to the callback
+// exactly once, on one of the gateway's own threads, so callers hold no thread or timer while they wait.
+public interface PaymentGateway {
+
+    void charge(ChargeRequest request, Consumer<ChargeResult> callback);
+}
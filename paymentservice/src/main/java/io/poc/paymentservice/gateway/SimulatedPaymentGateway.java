@@ -0,0 +1,64 @@
+package io.poc.paymentservice.gateway;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Local stand-in for a card/UPI processor. Each charge is one timer entry on a hashed wheel, so
+// thousands in flight cost a few objects each rather than a held pipeline. Latency is log-normal,
+// pinned by its median and p99; decline-rate of the charges come back declined.
+@Component
+@ConditionalOnProperty(name = "payment.gateway.type", havingValue = "simulated", matchIfMissing = true)
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+//    z-score of the 99th percentile of a standard normal.
+    private static final double Z_99 = 2.3263;
+
+    private final HashedWheelTimer timer = new HashedWheelTimer(
+            new DefaultThreadFactory("payment-gateway", true), 5, TimeUnit.MILLISECONDS, 512);
+
+    private final double mu;
+    private final double sigma;
+    private final double declineRate;
+
+    private final Logger log = LoggerFactory.getLogger(SimulatedPaymentGateway.class);
+
+    public SimulatedPaymentGateway(
+            @Value("${payment.gateway.simulated.median-latency:200ms}") Duration medianLatency,
+            @Value("${payment.gateway.simulated.p99-latency:2s}") Duration p99Latency,
+            @Value("${payment.gateway.simulated.decline-rate:0.0}") double declineRate
+    ) {
+        this.mu = Math.log(medianLatency.toMillis());
+        this.sigma = Math.max(0, Math.log((double) p99Latency.toMillis() / medianLatency.toMillis()) / Z_99);
+        this.declineRate = declineRate;
+        log.info("Simulated payment gateway: median {} p99 {} decline rate {}", medianLatency, p99Latency, declineRate);
+    }
+
+    @Override
+    public void charge(ChargeRequest request, Consumer<ChargeResult> callback) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long latencyMs = Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+        boolean approved = random.nextDouble() >= declineRate;
+
+        timer.newTimeout(timeout -> callback.accept(
+                        new ChargeResult(request.orderId(), approved, UUID.randomUUID().toString())),
+                latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.stop();
+    }
+}
@@ -0,0 +1,132 @@
+package io.poc.paymentservice.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.poc.paymentservice.entity.Payment;
+import io.poc.paymentservice.exception.PaymentInProgressException;
+import io.poc.paymentservice.model.PaymentDto;
+import io.poc.paymentservice.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+// Runs each payment once per idempotency key. Recent keys map to the payment's cached Mono, so a
+// duplicate that arrives while the first is still in flight, or after it finished, gets the same answer
+// without touching the database, the gateway or inventory. Payments still running are also kept in a
+// map of their own until they finish, since the bounded cache may evict an entry as soon as it is added
+// and the database only sees the key once the ledger write commits. A key held by neither is looked up
+// in payment.idempotency_key, whose unique constraint is the final guard. A stored row that is still
+// PENDING is not an answer: its charge is running elsewhere or was cut off by a crash, so the caller
+// gets PaymentInProgressException (409) and retries later. Hit and miss counts are the
+// cache.* meters tagged cache=payment-idempotency; payment.idempotency.duplicates counts the duplicates.
+@Component
+public class IdempotentPayments {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotentPayments.class);
+
+    private final PaymentRepository paymentRepository;
+    private final Cache<String, Mono<PaymentDto>> recent;
+    private final Map<String, Mono<PaymentDto>> inFlight = new ConcurrentHashMap<>();
+    private final Counter cachedDuplicates;
+    private final Counter storedDuplicates;
+
+    public IdempotentPayments(
+            PaymentRepository paymentRepository,
+            MeterRegistry meterRegistry,
+            @Value("${payment.idempotency.cache.max-size:100000}") long maxSize,
+            @Value("${payment.idempotency.cache.ttl:1h}") Duration ttl
+    ) {
+        this.paymentRepository = paymentRepository;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recent, "payment-idempotency");
+
+        this.cachedDuplicates = meterRegistry.counter("payment.idempotency.duplicates", "source", "cache");
+        this.storedDuplicates = meterRegistry.counter("payment.idempotency.duplicates", "source", "database");
+        log.info("Initializing IdempotentPayments");
+    }
+
+    public Mono<PaymentDto> once(String key, Supplier<Mono<PaymentDto>> payment) {
+        Mono<PaymentDto> answered = recent.getIfPresent(key);
+        if (answered != null) {
+            cachedDuplicates.increment();
+            log.info("Duplicate payment request for key {}, answered from cache", key);
+            return answered;
+        }
+
+        AtomicReference<Mono<PaymentDto>> created = new AtomicReference<>();
+
+//        Only an answer is cached; a failed payment is not one, so the client's retry runs again. The key
+//        leaves inFlight before the signal reaches any caller, or a quick retry would rejoin the failed Mono.
+        Mono<PaymentDto> result = inFlight.computeIfAbsent(key, k -> {
+            Mono<PaymentDto> first = storedOrNew(k, payment)
+                    .doOnNext(paymentDto -> recent.put(k, Mono.just(paymentDto)))
+                    .doOnTerminate(() -> inFlight.remove(k))
+                    .cache();
+            created.set(first);
+            return first;
+        });
+
+        if (created.get() == null) {
+            cachedDuplicates.increment();
+            log.info("Duplicate payment request for key {}, joined the payment in flight", key);
+        }
+        return result;
+    }
+
+    private Mono<PaymentDto> storedOrNew(String key, Supplier<Mono<PaymentDto>> payment) {
+        return Mono.fromCallable(() -> paymentRepository.findByIdempotencyKey(key))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(stored -> {
+                    if (stored.isEmpty()) {
+
+//                        Another instance can claim the key between the lookup and the PENDING insert.
+                        return payment.get().onErrorResume(DataIntegrityViolationException.class, e -> stored(key));
+                    }
+                    return duplicate(key, stored.get());
+                });
+    }
+
+    private Mono<PaymentDto> stored(String key) {
+        return Mono.fromCallable(() -> paymentRepository.findByIdempotencyKey(key).orElseThrow())
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(payment -> duplicate(key, payment));
+    }
+
+    private Mono<PaymentDto> duplicate(String key, Payment payment) {
+        storedDuplicates.increment();
+
+        if (payment.getStatus().equals("PENDING")) {
+            log.info("Duplicate payment request for key {}, payment {} is still pending", key, payment.getPaymentId());
+            return Mono.error(new PaymentInProgressException("Payment for key " + key + " is still in progress"));
+        }
+
+        log.info("Duplicate payment request for key {}, answered from payment {}", key, payment.getPaymentId());
+        return Mono.just(toPaymentDto(payment));
+    }
+
+    private static PaymentDto toPaymentDto(Payment payment) {
+        return PaymentDto.builder()
+                .orderId(payment.getOrderId())
+                .amount(payment.getAmount())
+                .paymentType(payment.getPaymentType())
+                .status(payment.getStatus())
+                .build();
+    }
+}
@@ -0,0 +1,162 @@
+package io.poc.paymentservice.inventory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Collects reservation confirms and cancels for a short window and settles them with one call to the
+// inventory batch endpoints. Each caller still gets its own Mono, completed when its batch returns.
+@Component
+public class InventorySettlementBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(InventorySettlementBatcher.class);
+
+    private final WebClient webClient;
+
+    private final Lane confirmations = new Lane("/reserve/confirm/batch");
+    private final Lane cancellations = new Lane("/reserve/cancel/batch");
+
+    @Value("${service.inventory}")
+    private String INVENTORY_SERVICE;
+
+    @Value("${payment.inventory.batch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${payment.inventory.batch.max-size:100}")
+    private int maxSize;
+
+    @Value("${payment.inventory.batch.window:20ms}")
+    private Duration window;
+
+    @Value("${payment.inventory.batch.concurrency:2}")
+    private int concurrency;
+
+    public InventorySettlementBatcher(@Qualifier("inventoryWebClient") WebClient webClient) {
+        this.webClient = webClient;
+        log.info("Initializing InventorySettlementBatcher");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        confirmations.start();
+        cancellations.start();
+        log.info("Settling reservations in batches of up to {} every {}", maxSize, window);
+    }
+
+    @PreDestroy
+    public void stop() {
+        confirmations.stop();
+        cancellations.stop();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Mono<Void> confirm(Long orderId) {
+        return confirmations.enqueue(orderId);
+    }
+
+    public Mono<Void> cancel(Long orderId) {
+        return cancellations.enqueue(orderId);
+    }
+
+    // One queue and drain loop per endpoint. Every settlement stays in pending until its batch answers, so a
+    // loop that dies can fail its callers instead of leaving them waiting, and start over on a fresh queue.
+    private final class Lane {
+
+        private final String path;
+        private final Set<Settlement> pending = ConcurrentHashMap.newKeySet();
+
+        private volatile Sinks.Many<Settlement> queue;
+        private volatile Disposable loop;
+
+        private Lane(String path) {
+            this.path = path;
+        }
+
+        private void start() {
+            queue = Sinks.many().unicast().onBackpressureBuffer();
+
+//            Fair mode only requests what flatMap can take, so a slow inventory call holds batches back
+//            instead of overflowing the buffer.
+            loop = queue.asFlux()
+                    .bufferTimeout(maxSize, window, true)
+                    .flatMap(this::send, concurrency)
+                    .subscribe(null, this::restart);
+        }
+
+        private void restart(Throwable e) {
+            log.error("Settlement loop for {} failed, restarting it", path, e);
+            start();
+            pending.forEach(settlement -> fail(settlement, e));
+        }
+
+        private void stop() {
+            if (queue != null) queue.tryEmitComplete();
+            if (loop != null) loop.dispose();
+        }
+
+        private Mono<Void> enqueue(Long orderId) {
+            return Mono.defer(() -> {
+                Settlement settlement = new Settlement(orderId, Sinks.empty());
+                pending.add(settlement);
+
+//                Several payment threads emit at once; spin briefly instead of failing on a non-serialized emit.
+                queue.emitNext(settlement, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+                return settlement.done().asMono();
+            });
+        }
+
+        private Mono<Void> send(List<Settlement> batch) {
+            List<Long> orderIds = batch.stream()
+                    .map(Settlement::orderId)
+                    .distinct()
+                    .toList();
+
+            return webClient.post()
+                    .uri(INVENTORY_SERVICE + path)
+                    .bodyValue(orderIds)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .doOnSubscribe(subscription -> log.info("Settling {} orders via {}", orderIds.size(), path))
+                    .doOnSuccess(response -> batch.forEach(this::complete))
+                    .doOnError(e -> {
+                        log.error("Batch settlement via {} failed", path, e);
+                        batch.forEach(settlement -> fail(settlement, e));
+                    })
+                    .then()
+                    .onErrorResume(e -> Mono.empty());
+        }
+
+        private void complete(Settlement settlement) {
+            pending.remove(settlement);
+            settlement.done().tryEmitEmpty();
+        }
+
+        private void fail(Settlement settlement, Throwable e) {
+            pending.remove(settlement);
+            settlement.done().tryEmitError(e);
+        }
+    }
+
+    private record Settlement(Long orderId, Sinks.Empty<Void> done) {
+    }
+}
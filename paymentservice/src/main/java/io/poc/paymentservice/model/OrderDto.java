@@ -18,4 +18,7 @@ public class OrderDto {
     private String orderStatus;
     private String email;
 
+//    Payment attempt for the order, part of the default idempotency key; a deliberate retry bumps it.
+    private Integer attempt;
+
 }
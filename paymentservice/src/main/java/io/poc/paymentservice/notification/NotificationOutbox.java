@@ -0,0 +1,310 @@
+package io.poc.paymentservice.notification;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.poc.paymentservice.model.OrderDto;
+import io.poc.paymentservice.proxy.NotificationProxy;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// In-process outbox for user notifications. The payment path only offers to a bounded queue; one
+// dispatcher thread drains it in batches to notificationservice's /notify/batch, retrying with jittered
+// exponential backoff. While notificationservice is slow or down the queue fills up and the overflow
+// policy decides: DROP_NEWEST, DROP_OLDEST, or SPILL to a local file that is replayed once the queue
+// has drained. Enqueue never touches the disk: spilled notifications go to a second small queue that a
+// spiller thread writes out, and only when that one is full too is a notification dropped.
+@Component
+public class NotificationOutbox {
+
+    public enum OverflowPolicy { DROP_NEWEST, DROP_OLDEST, SPILL }
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationOutbox.class);
+
+    private final NotificationProxy notificationProxy;
+    private final ObjectMapper objectMapper;
+    private final Object spillLock = new Object();
+
+    private final Counter enqueued;
+    private final Counter sent;
+    private final Counter dropped;
+    private final Counter spilled;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payment.notification.capacity:10000}")
+    private int capacity;
+
+    @Value("${payment.notification.batch-size:100}")
+    private int batchSize;
+
+    @Value("${payment.notification.overflow:SPILL}")
+    private OverflowPolicy overflow;
+
+    @Value("${payment.notification.spill-file:notification-spill.ndjson}")
+    private Path spillFile;
+
+    @Value("${payment.notification.spill-capacity:1000}")
+    private int spillCapacity;
+
+    @Value("${payment.notification.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${payment.notification.backoff:200ms}")
+    private Duration backoff;
+
+    @Value("${payment.notification.max-backoff:30s}")
+    private Duration maxBackoff;
+
+    private BlockingQueue<OrderDto> queue;
+    private BlockingQueue<OrderDto> spillQueue;
+    private Path replayFile;
+    private Thread dispatcher;
+    private Thread spiller;
+    private volatile boolean running;
+
+    public NotificationOutbox(NotificationProxy notificationProxy, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.notificationProxy = notificationProxy;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enqueued = meterRegistry.counter("payment.notification.enqueued");
+        this.sent = meterRegistry.counter("payment.notification.sent");
+        this.dropped = meterRegistry.counter("payment.notification.dropped");
+        this.spilled = meterRegistry.counter("payment.notification.spilled");
+        log.info("Initializing NotificationOutbox");
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        spillQueue = new ArrayBlockingQueue<>(spillCapacity);
+        replayFile = spillFile.resolveSibling(spillFile.getFileName() + ".replay");
+        meterRegistry.gauge("payment.notification.queued", queue, BlockingQueue::size);
+
+        running = true;
+        dispatcher = Thread.ofPlatform().name("notification-dispatcher").daemon().start(this::dispatch);
+        spiller = Thread.ofPlatform().name("notification-spiller").daemon().start(this::spillQueued);
+        log.info("Dispatching notifications in batches of up to {}, queue of {} with overflow {}", batchSize, capacity, overflow);
+    }
+
+//    Whatever is still queued after a short grace period is spilled (or lost, with a drop policy).
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        dispatcher.join(5_000);
+        dispatcher.interrupt();
+
+        List<OrderDto> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            handleOverflow(remaining, "shutdown");
+        }
+
+        spiller.join(5_000);
+        spiller.interrupt();
+
+        List<OrderDto> unspilled = new ArrayList<>();
+        spillQueue.drainTo(unspilled);
+        if (!unspilled.isEmpty()) {
+            spill(unspilled);
+        }
+    }
+
+    public void enqueue(OrderDto order) {
+        if (queue.offer(order)) {
+            enqueued.increment();
+            return;
+        }
+
+        switch (overflow) {
+            case DROP_NEWEST -> drop(List.of(order), "queue full");
+            case DROP_OLDEST -> {
+                OrderDto oldest = queue.poll();
+                if (oldest != null) {
+                    drop(List.of(oldest), "queue full");
+                }
+                if (queue.offer(order)) {
+                    enqueued.increment();
+                } else {
+                    drop(List.of(order), "queue full");
+                }
+            }
+            case SPILL -> {
+                if (!spillQueue.offer(order)) {
+                    drop(List.of(order), "spill queue full");
+                }
+            }
+        }
+    }
+
+    private void dispatch() {
+        List<OrderDto> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                OrderDto first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    replaySpill();
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                send(batch);
+            } catch (InterruptedException e) {
+                handleOverflow(batch, "shutdown");
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Notification dispatcher failed on a batch of {}", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void spillQueued() {
+        List<OrderDto> batch = new ArrayList<>(batchSize);
+
+        while (running || !spillQueue.isEmpty()) {
+            try {
+                OrderDto first = spillQueue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                spillQueue.drainTo(batch, batchSize - 1);
+                spill(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<OrderDto> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                notificationProxy.notifyAll(batch);
+                sent.increment(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    log.error("Giving up on {} notifications after {} attempts: {}", batch.size(), attempt, e.toString());
+                    handleOverflow(new ArrayList<>(batch), "undeliverable");
+                    return;
+                }
+
+                long delay = backoff(attempt);
+                log.warn("Sending {} notifications failed (attempt {}), retrying in {}ms: {}",
+                        batch.size(), attempt, delay, e.toString());
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+//    Exponential, capped, and jittered over its upper half so dispatchers of several instances spread out.
+    private long backoff(int attempt) {
+        long cap = Math.min(maxBackoff.toMillis(), backoff.toMillis() << Math.min(attempt - 1, 20));
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+    }
+
+    private void handleOverflow(List<OrderDto> orders, String reason) {
+        if (overflow == OverflowPolicy.SPILL) {
+            spill(orders);
+        } else {
+            drop(orders, reason);
+        }
+    }
+
+    private void drop(List<OrderDto> orders, String reason) {
+        dropped.increment(orders.size());
+        log.warn("Dropped {} notifications ({}): orders {}", orders.size(), reason,
+                orders.stream().map(OrderDto::getOrderId).toList());
+    }
+
+    private void spill(List<OrderDto> orders) {
+        synchronized (spillLock) {
+            try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (OrderDto order : orders) {
+                    writer.write(objectMapper.writeValueAsString(order));
+                    writer.newLine();
+                }
+                spilled.increment(orders.size());
+            } catch (IOException e) {
+                log.error("Spilling {} notifications to {} failed", orders.size(), spillFile, e);
+                dropped.increment(orders.size());
+            }
+        }
+    }
+
+//    Runs on the dispatcher when the queue is empty. The spill file is moved aside first, so the spiller
+//    can keep appending while it is read back; lines that do not fit the queue go back to the spill file.
+    private void replaySpill() {
+        try {
+            if (!Files.exists(replayFile)) {
+                synchronized (spillLock) {
+                    if (!Files.exists(spillFile)) {
+                        return;
+                    }
+                    Files.move(spillFile, replayFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+
+            List<OrderDto> overflowing = new ArrayList<>();
+            int replayed = 0;
+
+            try (BufferedReader reader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    OrderDto order = objectMapper.readValue(line, OrderDto.class);
+                    if (overflowing.isEmpty() && queue.offer(order)) {
+                        replayed++;
+                    } else {
+                        overflowing.add(order);
+                    }
+                }
+            }
+
+            if (!overflowing.isEmpty()) {
+                spill(overflowing);
+            }
+            Files.delete(replayFile);
+            log.info("Replayed {} spilled notifications, {} still spilled", replayed, overflowing.size());
+        } catch (JsonProcessingException e) {
+            log.error("Spill file {} is corrupt, skipping it", replayFile, e);
+            try {
+                Files.move(replayFile, replayFile.resolveSibling(replayFile.getFileName() + ".corrupt"),
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException moveFailure) {
+                throw new UncheckedIOException(moveFailure);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
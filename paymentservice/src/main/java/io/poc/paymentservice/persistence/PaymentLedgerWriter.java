@@ -0,0 +1,223 @@
+package io.poc.paymentservice.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.poc.paymentservice.entity.Payment;
+import io.poc.paymentservice.repository.PaymentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Group commit for the payment ledger. Inserts and status updates from concurrent payments are queued,
+// gathered for up to window or max-size writes, and committed in one transaction: one round of JDBC
+// batches and one WAL flush for the whole group. Each caller's Mono completes only after that commit,
+// so an answered write is durable. payment.ledger.commits (rate = commits/s), payment.ledger.group.size
+// (mean = writes per commit) and payment.ledger.commit.time show what window and max-size buy. A write
+// stays in pending until its group reaches commit, so a loop that dies fails those callers and starts over.
+@Component
+public class PaymentLedgerWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentLedgerWriter.class);
+
+    private static final String UPDATE_STATUS = "UPDATE payment SET status = ? WHERE payment_id = ?";
+
+    private final PaymentRepository paymentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Set<Write> pending = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch drained = new CountDownLatch(1);
+
+    private final Counter commits;
+    private final DistributionSummary groupSize;
+    private final Timer commitTime;
+
+    private volatile Sinks.Many<Write> queue;
+    private Scheduler scheduler;
+
+    @Value("${payment.ledger.max-size:200}")
+    private int maxSize;
+
+    @Value("${payment.ledger.window:5ms}")
+    private Duration window;
+
+    @Value("${payment.ledger.concurrency:2}")
+    private int concurrency;
+
+    public PaymentLedgerWriter(
+            PaymentRepository paymentRepository,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry
+    ) {
+        this.paymentRepository = paymentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.commits = meterRegistry.counter("payment.ledger.commits");
+        this.groupSize = DistributionSummary.builder("payment.ledger.group.size").register(meterRegistry);
+        this.commitTime = Timer.builder("payment.ledger.commit.time").register(meterRegistry);
+        log.info("Initializing PaymentLedgerWriter");
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Schedulers.newBoundedElastic(concurrency, Integer.MAX_VALUE, "payment-ledger");
+        drain();
+        log.info("Group-committing payment writes, up to {} every {}", maxSize, window);
+    }
+
+//    Fair mode only requests a group when a commit slot is free, so commits slower than the window hold
+//    writes back in the queue instead of overflowing the buffer.
+    private void drain() {
+        queue = Sinks.many().unicast().onBackpressureBuffer();
+        queue.asFlux()
+                .bufferTimeout(maxSize, window, true)
+                .flatMap(group -> Mono.fromRunnable(() -> commit(group)).subscribeOn(scheduler), concurrency)
+                .subscribe(null, this::restart, drained::countDown);
+    }
+
+    private void restart(Throwable e) {
+        log.error("Payment ledger loop failed, restarting it", e);
+        drain();
+        pending.forEach(write -> fail(write, e));
+    }
+
+//    Lets the last group reach the database before the pool goes away.
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        queue.tryEmitComplete();
+        drained.await(5, TimeUnit.SECONDS);
+        scheduler.dispose();
+    }
+
+    // Emits the payment with its id once the insert is committed.
+    public Mono<Payment> insert(Payment payment) {
+        return Mono.defer(() -> {
+            Sinks.One<Payment> done = Sinks.one();
+            enqueue(new Insert(payment, done));
+            return done.asMono().publishOn(Schedulers.parallel());
+        });
+    }
+
+    // Completes once the new status is committed.
+    public Mono<Void> updateStatus(Long paymentId, String status) {
+        return Mono.defer(() -> {
+            Sinks.Empty<Void> done = Sinks.empty();
+            enqueue(new StatusUpdate(paymentId, status, done));
+            return done.asMono().publishOn(Schedulers.parallel());
+        });
+    }
+
+    private void enqueue(Write write) {
+        pending.add(write);
+
+//        Many payments emit at once; spin briefly instead of failing on a non-serialized emit.
+        queue.emitNext(write, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+
+    private void commit(List<Write> group) {
+        group.forEach(pending::remove);
+
+        List<Insert> inserts = new ArrayList<>();
+        List<StatusUpdate> updates = new ArrayList<>();
+        group.forEach(write -> {
+            if (write instanceof Insert insert) {
+                inserts.add(insert);
+            } else {
+                updates.add((StatusUpdate) write);
+            }
+        });
+
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(inserts, updates));
+        } catch (RuntimeException e) {
+
+//            One bad write (a duplicate idempotency key) fails the group; commit each on its own so only
+//            that caller sees the error.
+            log.warn("Group commit of {} payment writes failed, committing them one by one: {}", group.size(), e.toString());
+            group.forEach(this::commitAlone);
+            return;
+        }
+
+        commitTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        commits.increment();
+        groupSize.record(group.size());
+
+        inserts.forEach(insert -> insert.done().tryEmitValue(insert.payment()));
+        updates.forEach(update -> update.done().tryEmitEmpty());
+    }
+
+    private void commitAlone(Write write) {
+        try {
+            if (write instanceof Insert insert) {
+
+//                The rolled-back group already gave the payment a sequence id; with it set, save() would merge a
+//                row that does not exist instead of persisting it, and fail with an optimistic-lock error.
+                insert.payment().setPaymentId(null);
+                transactionTemplate.executeWithoutResult(status -> write(List.of(insert), List.of()));
+                insert.done().tryEmitValue(insert.payment());
+            } else {
+                StatusUpdate update = (StatusUpdate) write;
+                transactionTemplate.executeWithoutResult(status -> write(List.of(), List.of(update)));
+                update.done().tryEmitEmpty();
+            }
+            commits.increment();
+            groupSize.record(1);
+        } catch (RuntimeException e) {
+            fail(write, e);
+        }
+    }
+
+    private void fail(Write write, Throwable e) {
+        pending.remove(write);
+        if (write instanceof Insert insert) {
+            insert.done().tryEmitError(e);
+        } else {
+            ((StatusUpdate) write).done().tryEmitError(e);
+        }
+    }
+
+//    Inserts are flushed first: a status update never targets a row of its own group, but keeping the
+//    order costs nothing.
+    private void write(List<Insert> inserts, List<StatusUpdate> updates) {
+        if (!inserts.isEmpty()) {
+            paymentRepository.saveAllAndFlush(inserts.stream().map(Insert::payment).toList());
+        }
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_STATUS, updates, updates.size(), (statement, update) -> {
+                statement.setString(1, update.status());
+                statement.setLong(2, update.paymentId());
+            });
+        }
+    }
+
+    private sealed interface Write permits Insert, StatusUpdate {
+    }
+
+    private record Insert(Payment payment, Sinks.One<Payment> done) implements Write {
+    }
+
+    private record StatusUpdate(Long paymentId, String status, Sinks.Empty<Void> done) implements Write {
+    }
+}
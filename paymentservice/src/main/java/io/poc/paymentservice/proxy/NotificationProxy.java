@@ -6,9 +6,14 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
+
 @FeignClient("NOTIFICATIONSERVICE")
 public interface NotificationProxy {
 
     @PostMapping(path = "api/v1/notification-service/notify")
     void notifyUser(@RequestBody OrderDto order);
+
+    @PostMapping(path = "api/v1/notification-service/notify/batch")
+    List<Boolean> notifyAll(@RequestBody List<OrderDto> orders);
 }
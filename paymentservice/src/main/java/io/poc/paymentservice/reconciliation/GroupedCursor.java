@@ -0,0 +1,98 @@
+package io.poc.paymentservice.reconciliation;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+// One source's rows for an orderId range, read through a server-side cursor fetch-size rows at a time
+// and handed out one orderId at a time. The query selects order_id, status and optionally a timestamp,
+// ordered by order_id; memory is one fetch plus the current order's statuses.
+class GroupedCursor implements AutoCloseable {
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final ResultSet rows;
+    private final boolean timestamped;
+
+    private final Set<String> statuses = new TreeSet<>();
+    private long orderId;
+    private Timestamp touchedAt;
+    private boolean hasRow;
+    private boolean exhausted;
+    private long rowsRead;
+
+    GroupedCursor(DataSource dataSource, String sql, long from, long to, int fetchSize) throws SQLException {
+        connection = dataSource.getConnection();
+        try {
+
+//            PostgreSQL only honours the fetch size inside a transaction; MySQL needs useCursorFetch=true.
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, from);
+            statement.setLong(2, to);
+
+            rows = statement.executeQuery();
+            timestamped = rows.getMetaData().getColumnCount() > 2;
+            hasRow = rows.next();
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        next();
+    }
+
+    // Moves to the next orderId; once the range is read the cursor is exhausted and orderId is Long.MAX_VALUE.
+    void next() throws SQLException {
+        statuses.clear();
+        touchedAt = null;
+
+        if (!hasRow) {
+            exhausted = true;
+            orderId = Long.MAX_VALUE;
+            return;
+        }
+
+        orderId = rows.getLong(1);
+        while (hasRow && rows.getLong(1) == orderId) {
+            statuses.add(rows.getString(2));
+            if (timestamped) {
+                touchedAt = rows.getTimestamp(3);
+            }
+            rowsRead++;
+            hasRow = rows.next();
+        }
+    }
+
+    boolean isExhausted() {
+        return exhausted;
+    }
+
+    long orderId() {
+        return orderId;
+    }
+
+    // Distinct statuses of the current order's rows, valid until the next call to next().
+    Set<String> statuses() {
+        return Collections.unmodifiableSet(statuses);
+    }
+
+    Timestamp touchedAt() {
+        return touchedAt;
+    }
+
+    long rowsRead() {
+        return rowsRead;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (connection; statement; rows) {
+            connection.rollback();
+        }
+    }
+}
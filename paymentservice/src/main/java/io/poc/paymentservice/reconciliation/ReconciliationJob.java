@@ -0,0 +1,297 @@
+package io.poc.paymentservice.reconciliation;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Nightly check that payment rows, inventory reservations and orders agree, to find stuck sagas.
+// The orderId span is cut into partitions that run in parallel; each opens one ordered server-side
+// cursor per database and merge-joins them by orderId, so memory stays constant whatever the table
+// sizes. Mismatches go to reconciliation-<time>.csv, throughput and counts to a summary next to it.
+// Orders touched within stuck-after are still in flight and skipped.
+@Component
+@ConditionalOnProperty(name = "reconciliation.enabled", havingValue = "true")
+public class ReconciliationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationJob.class);
+
+    private static final String SELECT_ORDERS =
+            "SELECT order_id, order_status, COALESCE(updated_at, created_at) FROM orders " +
+            "WHERE order_id >= ? AND order_id < ? ORDER BY order_id";
+
+    private static final String SELECT_PAYMENTS =
+            "SELECT order_id, status FROM payment WHERE order_id >= ? AND order_id < ? ORDER BY order_id";
+
+    private static final String SELECT_RESERVATIONS =
+            "SELECT order_id, status FROM reservation WHERE order_id >= ? AND order_id < ? ORDER BY order_id";
+
+    private static final String REPORT_HEADER = "order_id,mismatch,order_status,payment_statuses,reservation_statuses,touched_at";
+
+    private final DataSource paymentDataSource;
+    private final HikariDataSource inventoryDataSource;
+    private final HikariDataSource ordersDataSource;
+    private final int partitions;
+
+    @Value("${reconciliation.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${reconciliation.stuck-after:30m}")
+    private Duration stuckAfter;
+
+    @Value("${reconciliation.report-dir:reconciliation}")
+    private Path reportDir;
+
+    public ReconciliationJob(
+            DataSource paymentDataSource,
+            @Value("${reconciliation.partitions:4}") int partitions,
+            @Value("${reconciliation.inventory.url}") String inventoryUrl,
+            @Value("${reconciliation.inventory.username}") String inventoryUsername,
+            @Value("${reconciliation.inventory.password}") String inventoryPassword,
+            @Value("${reconciliation.orders.url}") String ordersUrl,
+            @Value("${reconciliation.orders.username}") String ordersUsername,
+            @Value("${reconciliation.orders.password}") String ordersPassword
+    ) {
+        this.paymentDataSource = paymentDataSource;
+        this.partitions = partitions;
+
+//        Plain objects rather than beans: a second DataSource bean would switch off the auto-configured one.
+        this.inventoryDataSource = readOnlyDataSource("reconciliation-inventory", inventoryUrl, inventoryUsername, inventoryPassword);
+        this.ordersDataSource = readOnlyDataSource("reconciliation-orders", ordersUrl, ordersUsername, ordersPassword);
+        log.info("Initializing ReconciliationJob");
+    }
+
+    @PreDestroy
+    public void stop() {
+        inventoryDataSource.close();
+        ordersDataSource.close();
+    }
+
+    @Scheduled(cron = "${reconciliation.cron:0 30 2 * * *}")
+    public void run() throws Exception {
+        log.info("Entering ReconciliationJob::run()");
+        long started = System.nanoTime();
+
+        long[] span = orderIdSpan();
+        if (span == null) {
+            log.info("Nothing to reconcile");
+            return;
+        }
+
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Files.createDirectories(reportDir);
+        long settledBefore = System.currentTimeMillis() - stuckAfter.toMillis();
+
+        List<long[]> ranges = partitionRanges(span[0], span[1], partitions);
+        List<Future<PartitionResult>> running = new ArrayList<>();
+        List<PartitionResult> results = new ArrayList<>();
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(partitions)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                Path part = reportDir.resolve("reconciliation-" + stamp + ".part" + i);
+
+                running.add(pool.submit(() -> reconcile(range[0], range[1], part, settledBefore)));
+            }
+            for (Future<PartitionResult> partition : running) {
+                results.add(partition.get());
+            }
+        }
+
+        Path report = reportDir.resolve("reconciliation-" + stamp + ".csv");
+        merge(results, report);
+
+        String summary = summary(results, System.nanoTime() - started);
+        Files.writeString(reportDir.resolve("reconciliation-" + stamp + "-summary.txt"), summary);
+        log.info("Reconciliation finished, report {}\n{}", report, summary);
+    }
+
+    private PartitionResult reconcile(long from, long to, Path part, long settledBefore) throws SQLException, IOException {
+        long started = System.nanoTime();
+        Map<String, Long> mismatches = new TreeMap<>();
+
+        try (GroupedCursor orderCursor = new GroupedCursor(ordersDataSource, SELECT_ORDERS, from, to, fetchSize);
+             GroupedCursor paymentCursor = new GroupedCursor(paymentDataSource, SELECT_PAYMENTS, from, to, fetchSize);
+             GroupedCursor reservationCursor = new GroupedCursor(inventoryDataSource, SELECT_RESERVATIONS, from, to, fetchSize);
+             BufferedWriter report = Files.newBufferedWriter(part)) {
+
+            long orders = join(orderCursor, paymentCursor, reservationCursor, settledBefore, mismatches, report);
+            return new PartitionResult(from, to, orders, orderCursor.rowsRead(), paymentCursor.rowsRead(),
+                    reservationCursor.rowsRead(), mismatches, part, System.nanoTime() - started);
+        }
+    }
+
+    // Merge-joins the three cursors on orderId, writing one report line per mismatch; returns the orders seen.
+    static long join(GroupedCursor orderCursor, GroupedCursor paymentCursor, GroupedCursor reservationCursor,
+                     long settledBefore, Map<String, Long> mismatches, Writer report) throws SQLException, IOException {
+        long orders = 0;
+
+        while (!orderCursor.isExhausted() || !paymentCursor.isExhausted() || !reservationCursor.isExhausted()) {
+            long orderId = Math.min(orderCursor.orderId(), Math.min(paymentCursor.orderId(), reservationCursor.orderId()));
+
+            String orderStatus = null;
+            Timestamp touchedAt = null;
+            if (orderCursor.orderId() == orderId) {
+                orderStatus = String.join("|", orderCursor.statuses());
+                touchedAt = orderCursor.touchedAt();
+                orderCursor.next();
+            }
+            Set<String> payments = take(paymentCursor, orderId);
+            Set<String> reservations = take(reservationCursor, orderId);
+            orders++;
+
+            String mismatch = classify(orderStatus, payments, reservations, touchedAt, settledBefore);
+            if (mismatch != null) {
+                mismatches.merge(mismatch, 1L, Long::sum);
+                report.write(orderId + "," + mismatch + "," + (orderStatus == null ? "" : orderStatus) + ","
+                        + String.join("|", payments) + "," + String.join("|", reservations) + ","
+                        + (touchedAt == null ? "" : touchedAt.toInstant()) + System.lineSeparator());
+            }
+        }
+        return orders;
+    }
+
+    // Equal [from, to) orderId ranges covering min..max; Snowflake ids grow with time, so each holds a
+    // similar slice of history.
+    static List<long[]> partitionRanges(long min, long max, int partitions) {
+        long width = Math.max(1, (max - min) / partitions + 1);
+
+        List<long[]> ranges = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            long from = Math.min(min + i * width, max + 1);
+            long to = i == partitions - 1 ? max + 1 : Math.min(from + width, max + 1);
+            ranges.add(new long[]{from, to});
+        }
+        return ranges;
+    }
+
+    private static Set<String> take(GroupedCursor cursor, long orderId) throws SQLException {
+        if (cursor.orderId() != orderId) {
+            return Set.of();
+        }
+
+        Set<String> statuses = new TreeSet<>(cursor.statuses());
+        cursor.next();
+        return statuses;
+    }
+
+    // The mismatch for one order, null when the three services agree.
+    static String classify(String order, Set<String> payments, Set<String> reservations,
+                                   Timestamp touchedAt, long settledBefore) {
+        if (order == null) {
+            return payments.isEmpty() ? "RESERVATION_WITHOUT_ORDER" : "PAYMENT_WITHOUT_ORDER";
+        }
+        if (touchedAt != null && touchedAt.getTime() > settledBefore) {
+            return null;
+        }
+
+        boolean paid = payments.contains("PAYMENT_COMPLETE");
+        boolean stockHeld = reservations.contains("RESERVED") || reservations.contains("CONFIRMED");
+
+        return switch (order) {
+            case "CREATED", "RESERVED" -> "STUCK_" + order;
+            case "COMPLETED" -> !paid ? "COMPLETED_WITHOUT_PAYMENT"
+                    : !reservations.equals(Set.of("CONFIRMED")) ? "COMPLETED_WITHOUT_CONFIRMED_STOCK"
+                    : payments.contains("PENDING") ? "PAYMENT_LEFT_PENDING"
+                    : null;
+            case "CANCELLED", "FAILED" -> paid ? "PAID_BUT_" + order
+                    : stockHeld ? "STOCK_HELD_FOR_" + order
+                    : payments.contains("PENDING") ? "PAYMENT_LEFT_PENDING"
+                    : null;
+            default -> "UNKNOWN_ORDER_STATUS";
+        };
+    }
+
+    // Smallest and largest orderId in any of the three tables, null when all are empty.
+    private long[] orderIdSpan() throws SQLException {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+
+        for (Map.Entry<DataSource, String> table : Map.of(
+                ordersDataSource, "orders",
+                paymentDataSource, "payment",
+                inventoryDataSource, "reservation").entrySet()) {
+            try (Connection connection = table.getKey().getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT MIN(order_id), MAX(order_id) FROM " + table.getValue())) {
+                rows.next();
+                if (rows.getObject(1) != null) {
+                    min = Math.min(min, rows.getLong(1));
+                    max = Math.max(max, rows.getLong(2));
+                }
+            }
+        }
+        return min > max ? null : new long[]{min, max};
+    }
+
+    // Partition files in orderId order under one header, so the report reads sorted by order.
+    private static void merge(List<PartitionResult> results, Path report) throws IOException {
+        try (OutputStream out = Files.newOutputStream(report, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write((REPORT_HEADER + System.lineSeparator()).getBytes());
+            for (PartitionResult result : results) {
+                Files.copy(result.part(), out);
+                Files.delete(result.part());
+            }
+        }
+    }
+
+    private String summary(List<PartitionResult> results, long elapsedNanos) {
+        long orders = results.stream().mapToLong(PartitionResult::orders).sum();
+        double seconds = elapsedNanos / 1e9;
+
+        Map<String, Long> mismatches = new TreeMap<>();
+        results.forEach(result -> result.mismatches().forEach((kind, count) -> mismatches.merge(kind, count, Long::sum)));
+
+        StringBuilder summary = new StringBuilder()
+                .append(String.format("%d orders in %d partitions, %.1fs, %.0f orders/s%n",
+                        orders, results.size(), seconds, orders / Math.max(seconds, 1e-3)))
+                .append(String.format("rows read: orders=%d payment=%d reservation=%d%n",
+                        results.stream().mapToLong(PartitionResult::orderRows).sum(),
+                        results.stream().mapToLong(PartitionResult::paymentRows).sum(),
+                        results.stream().mapToLong(PartitionResult::reservationRows).sum()))
+                .append("mismatches: ").append(mismatches.isEmpty() ? "none" : mismatches).append(System.lineSeparator());
+
+        results.forEach(result -> summary.append(String.format("  [%d, %d) %d orders in %dms%n",
+                result.from(), result.to(), result.orders(), result.nanos() / 1_000_000)));
+        return summary.toString();
+    }
+
+    private HikariDataSource readOnlyDataSource(String name, String url, String username, String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName(name);
+        dataSource.setReadOnly(true);
+        dataSource.setMaximumPoolSize(Math.max(2, partitions + 1));
+        return dataSource;
+    }
+
+    private record PartitionResult(long from, long to, long orders, long orderRows, long paymentRows,
+                                   long reservationRows, Map<String, Long> mismatches, Path part, long nanos) {
+    }
+}
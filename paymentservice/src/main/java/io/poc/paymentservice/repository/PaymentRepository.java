@@ -4,6 +4,10 @@ import io.poc.paymentservice.entity.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Integer> {
+
+    Optional<Payment> findByIdempotencyKey(String idempotencyKey);
 }
@@ -6,5 +6,6 @@ import reactor.core.publisher.Mono;
 
 public interface PaymentService {
 
-    Mono<PaymentDto> pay(OrderDto order);
+    // idempotencyKey may be null; the key then defaults to orderId:attempt.
+    Mono<PaymentDto> pay(OrderDto order, String idempotencyKey);
 }
@@ -2,17 +2,26 @@ package io.poc.paymentservice.service.impl;
 
 import io.poc.paymentservice.constants.PaymentType;
 import io.poc.paymentservice.entity.Payment;
+import io.poc.paymentservice.gateway.ChargeRequest;
+import io.poc.paymentservice.gateway.ChargeResult;
+import io.poc.paymentservice.gateway.PaymentGateway;
+import io.poc.paymentservice.idempotency.IdempotentPayments;
+import io.poc.paymentservice.inventory.InventorySettlementBatcher;
 import io.poc.paymentservice.model.OrderDto;
 import io.poc.paymentservice.model.PaymentDto;
-import io.poc.paymentservice.proxy.NotificationProxy;
-import io.poc.paymentservice.repository.PaymentRepository;
+import io.poc.paymentservice.notification.NotificationOutbox;
+import io.poc.paymentservice.persistence.PaymentLedgerWriter;
 import io.poc.paymentservice.service.PaymentService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 
 import java.time.Duration;
 
@@ -21,27 +30,36 @@ public class PaymentServiceImpl implements PaymentService {
 
     private static final Logger log = LoggerFactory.getLogger(PaymentServiceImpl.class);
 
-    private final PaymentRepository paymentRepository;
-    private final NotificationProxy notificationProxy;
+    private final PaymentGateway paymentGateway;
+    private final PaymentLedgerWriter paymentLedgerWriter;
+    private final NotificationOutbox notificationOutbox;
+    private final IdempotentPayments idempotentPayments;
     private final WebClient webClient;
+    private final InventorySettlementBatcher settlementBatcher;
 
     @Value("${service.inventory}")
     private String INVENTORY_SERVICE;
 
 
     public PaymentServiceImpl(
-            PaymentRepository paymentRepository,
-            NotificationProxy notificationProxy,
-            WebClient webClient) {
-
-        this.paymentRepository = paymentRepository;
-        this.notificationProxy = notificationProxy;
+            PaymentGateway paymentGateway,
+            PaymentLedgerWriter paymentLedgerWriter,
+            NotificationOutbox notificationOutbox,
+            IdempotentPayments idempotentPayments,
+            @Qualifier("inventoryWebClient") WebClient webClient,
+            InventorySettlementBatcher settlementBatcher) {
+
+        this.paymentGateway = paymentGateway;
+        this.paymentLedgerWriter = paymentLedgerWriter;
+        this.notificationOutbox = notificationOutbox;
+        this.idempotentPayments = idempotentPayments;
         this.webClient = webClient;
+        this.settlementBatcher = settlementBatcher;
         log.info("Initializing PaymentServiceImpl");
     }
 
     @Override
-    public Mono<PaymentDto> pay(OrderDto order) {
+    public Mono<PaymentDto> pay(OrderDto order, String idempotencyKey) {
         log.info("Entering PaymentServiceImpl::makePayment");
         log.info("Processing payment for OrderID={} | Amount={} | Email={}",
                 order.getOrderId(), order.getOrderValue(), order.getEmail());
@@ -50,59 +68,12 @@ public class PaymentServiceImpl implements PaymentService {
 
         if (orderStatus.equalsIgnoreCase("RESERVED")) {
 
-            Payment payment = Payment.builder()
-                    .orderId(order.getOrderId())
-                    .amount(order.getOrderValue())
-                    .paymentType(PaymentType.UPI.name())
-                    .status("COMPLETE")
-                    .build();
-
-            log.info("Persisting Payment entity...");
-            Payment persistedPayment = paymentRepository.save(payment);
-
-            if (persistedPayment.getStatus().equalsIgnoreCase("COMPLETE")) {
-
-                log.info("Payment persisted with ID={} for OrderID={}",
-                        persistedPayment.getPaymentId(), persistedPayment.getOrderId());
-
-                log.info("Triggering notification to {}",
-                        order.getEmail());
-
-                order.setOrderStatus("ORDER_PLACED");
-                notificationProxy.notifyUser(order);
-
-                log.info("Exiting PaymentServiceImpl::makePayment");
-
-                return confirm(persistedPayment.getOrderId())
-                        .thenReturn(PaymentDto.builder()
-                                .amount(persistedPayment.getAmount())
-                                .paymentType(persistedPayment.getPaymentType())
-                                .status("PAYMENT_COMPLETE")
-                                .build())
-                        .delayElement(Duration.ofSeconds(10))
-                        .doOnSuccess(o -> {
-
-                            log.info("Payment COMPLETE Amount={}",
-                                    persistedPayment.getAmount());
-
-                            persistedPayment.setStatus("PAYMENT_COMPLETE");
-                            paymentRepository.save(persistedPayment);
-
-                        });
-            }
+            String key = idempotencyKey == null || idempotencyKey.isBlank()
+                    ? order.getOrderId() + ":" + (order.getAttempt() == null ? 1 : order.getAttempt())
+                    : idempotencyKey;
 
-            return cancel(order.getOrderId())
-                    .thenReturn(PaymentDto.builder()
-                            .amount(order.getOrderValue())
-                            .status("CANCELLED")
-                            .build())
-                    .delayElement(Duration.ofSeconds(10))
-                    .doOnSuccess(o -> {
-                        log.info("Payment CANCELLED Amount={}", persistedPayment);
-
-                        persistedPayment.setStatus("PAYMENT_CANCELLED");
-                        paymentRepository.save(persistedPayment);
-                    });
+//            A retried request with the same key gets the first one's answer; it is charged only once.
+            return idempotentPayments.once(key, () -> charge(order, key));
         }
 
         return Mono.just(PaymentDto.builder()
@@ -112,7 +83,80 @@ public class PaymentServiceImpl implements PaymentService {
                 .build());
     }
 
+    private Mono<PaymentDto> charge(OrderDto order, String idempotencyKey) {
+        ChargeRequest request = new ChargeRequest(order.getOrderId(), order.getOrderValue(), PaymentType.UPI.name());
+
+        Payment pending = Payment.builder()
+                .orderId(order.getOrderId())
+                .amount(order.getOrderValue())
+                .paymentType(request.paymentType())
+                .status("PENDING")
+                .idempotencyKey(idempotencyKey)
+                .build();
+
+//        The PENDING row is durable before the gateway is called, so a crash mid-charge leaves a trace and
+//        the idempotency key is claimed up front. Both ledger writes share group commits with other payments.
+        return paymentLedgerWriter.insert(pending).flatMap(payment ->
+
+//                The gateway answers through its callback; nothing waits on a thread or timer until then, and
+//                the rest of the flow moves off the gateway's timer thread straight away.
+                Mono.<ChargeResult>create(sink -> paymentGateway.charge(request, sink::success))
+                        .publishOn(Schedulers.parallel())
+                        .flatMap(result -> {
+
+                            String status = result.approved() ? "PAYMENT_COMPLETE" : "PAYMENT_CANCELLED";
+
+//                            The outcome is committed before inventory or the customer hear of it, so nothing acts on
+//                            a payment the ledger lost. If it cannot be stored the caller gets the error and the row
+//                            stays PENDING for reconciliation.
+                            Mono<Void> recorded = paymentLedgerWriter.updateStatus(payment.getPaymentId(), status)
+                                    .retryWhen(Retry.backoff(3, Duration.ofMillis(100))
+                                            .filter(TransientDataAccessException.class::isInstance))
+                                    .doOnError(e -> log.error("Could not record {} for payment {} of OrderID={}",
+                                            status, payment.getPaymentId(), order.getOrderId(), e));
+
+                            if (result.approved()) {
+
+                                log.info("Payment COMPLETE for OrderID={} Amount={} Reference={}",
+                                        order.getOrderId(), order.getOrderValue(), result.reference());
+
+                                order.setOrderStatus("ORDER_PLACED");
+
+                                log.info("Exiting PaymentServiceImpl::makePayment");
+                                return recorded
+                                        .then(Mono.defer(() -> {
+
+//                                            Sent later in a batch by the outbox; the payment only pays for the enqueue.
+                                            log.info("Queueing notification to {}", order.getEmail());
+                                            notificationOutbox.enqueue(order);
+                                            return confirm(order.getOrderId());
+                                        }))
+                                        .thenReturn(PaymentDto.builder()
+                                                .orderId(order.getOrderId())
+                                                .amount(payment.getAmount())
+                                                .paymentType(payment.getPaymentType())
+                                                .status(status)
+                                                .build());
+                            }
+
+                            log.info("Payment CANCELLED for OrderID={} Amount={}", order.getOrderId(), order.getOrderValue());
+
+                            return recorded
+                                    .then(Mono.defer(() -> cancel(order.getOrderId())))
+                                    .thenReturn(PaymentDto.builder()
+                                            .orderId(order.getOrderId())
+                                            .amount(payment.getAmount())
+                                            .paymentType(payment.getPaymentType())
+                                            .status(status)
+                                            .build());
+                        }));
+    }
+
     private Mono<Void> confirm(Long orderId) {
+        if (settlementBatcher.isEnabled()) {
+            return settlementBatcher.confirm(orderId);
+        }
+
         return webClient.post()
                 .uri(INVENTORY_SERVICE + "/reserve/confirm")
                 .bodyValue(orderId)
@@ -123,6 +167,10 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     private Mono<Void> cancel(Long orderId) {
+        if (settlementBatcher.isEnabled()) {
+            return settlementBatcher.cancel(orderId);
+        }
+
         return webClient.post()
                 .uri(INVENTORY_SERVICE + "/reserve/cancel")
                 .bodyValue(orderId)
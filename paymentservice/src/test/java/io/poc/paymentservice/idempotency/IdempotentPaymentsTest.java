@@ -0,0 +1,97 @@
+package io.poc.paymentservice.idempotency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.poc.paymentservice.entity.Payment;
+import io.poc.paymentservice.exception.PaymentInProgressException;
+import io.poc.paymentservice.model.PaymentDto;
+import io.poc.paymentservice.repository.PaymentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// A key another instance has claimed is stored as a PENDING row until its charge finishes. That row must
+// never be handed back as the answer: the order would be completed without anyone being charged.
+class IdempotentPaymentsTest {
+
+    private static final String KEY = "42:1";
+
+    private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+    private final IdempotentPayments idempotentPayments =
+            new IdempotentPayments(paymentRepository, new SimpleMeterRegistry(), 1000, Duration.ofMinutes(1));
+
+    private final AtomicInteger charges = new AtomicInteger();
+
+    @Test
+    void keyClaimedByAnotherInstanceBeforeTheLookupIsInProgress() {
+        when(paymentRepository.findByIdempotencyKey(KEY)).thenReturn(Optional.of(payment("PENDING")));
+
+        assertThatThrownBy(() -> idempotentPayments.once(KEY, this::charge).block())
+                .isInstanceOf(PaymentInProgressException.class);
+        assertThat(charges).hasValue(0);
+    }
+
+    @Test
+    void keyClaimedByAnotherInstanceDuringTheInsertIsInProgress() {
+        when(paymentRepository.findByIdempotencyKey(KEY))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(payment("PENDING")));
+
+        assertThatThrownBy(() -> idempotentPayments.once(KEY, () -> Mono.error(
+                new DataIntegrityViolationException("uk_payment_idempotency_key"))).block())
+                .isInstanceOf(PaymentInProgressException.class);
+    }
+
+    @Test
+    void inProgressIsNotCachedSoTheRetryGetsTheFinalAnswer() {
+        when(paymentRepository.findByIdempotencyKey(KEY))
+                .thenReturn(Optional.of(payment("PENDING")))
+                .thenReturn(Optional.of(payment("PAYMENT_COMPLETE")));
+
+        assertThatThrownBy(() -> idempotentPayments.once(KEY, this::charge).block())
+                .isInstanceOf(PaymentInProgressException.class);
+
+        assertThat(idempotentPayments.once(KEY, this::charge).block().getStatus()).isEqualTo("PAYMENT_COMPLETE");
+        assertThat(idempotentPayments.once(KEY, this::charge).block().getStatus()).isEqualTo("PAYMENT_COMPLETE");
+        assertThat(charges).hasValue(0);
+    }
+
+    @Test
+    void newKeyIsChargedOnce() {
+        when(paymentRepository.findByIdempotencyKey(KEY)).thenReturn(Optional.empty());
+
+        assertThat(idempotentPayments.once(KEY, this::charge).block().getStatus()).isEqualTo("PAYMENT_COMPLETE");
+        assertThat(idempotentPayments.once(KEY, this::charge).block().getStatus()).isEqualTo("PAYMENT_COMPLETE");
+        assertThat(charges).hasValue(1);
+    }
+
+    private Mono<PaymentDto> charge() {
+        return Mono.fromCallable(() -> {
+            charges.incrementAndGet();
+            return PaymentDto.builder()
+                    .orderId(42L)
+                    .amount(100L)
+                    .status("PAYMENT_COMPLETE")
+                    .build();
+        });
+    }
+
+    private static Payment payment(String status) {
+        return Payment.builder()
+                .paymentId(7L)
+                .orderId(42L)
+                .amount(100L)
+                .paymentType("UPI")
+                .status(status)
+                .idempotencyKey(KEY)
+                .build();
+    }
+}
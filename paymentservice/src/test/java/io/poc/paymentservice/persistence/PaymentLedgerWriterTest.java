@@ -0,0 +1,126 @@
+package io.poc.paymentservice.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.poc.paymentservice.entity.Payment;
+import io.poc.paymentservice.repository.PaymentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// One duplicate idempotency key in a group of valid inserts. The repository stands in for Hibernate: a
+// flush hands out sequence ids before the constraint fails, and saving a payment that still carries an
+// id is a merge of a row that does not exist. Only the duplicate may fail. With commits slower than the
+// window, groups must wait for a commit slot rather than overflow the buffer and strand their callers.
+class PaymentLedgerWriterTest {
+
+    private final Set<String> committedKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong commitMillis = new AtomicLong();
+
+    private PaymentLedgerWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        committedKeys.add("taken");
+
+        PaymentRepository paymentRepository = mock(PaymentRepository.class);
+        when(paymentRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+            List<Payment> payments = invocation.getArgument(0);
+            Thread.sleep(commitMillis.get());
+            if (payments.stream().anyMatch(payment -> payment.getPaymentId() != null)) {
+                throw new ObjectOptimisticLockingFailureException(Payment.class, payments.getFirst().getPaymentId());
+            }
+
+            payments.forEach(payment -> payment.setPaymentId(sequence.incrementAndGet()));
+            if (payments.stream().anyMatch(payment -> committedKeys.contains(payment.getIdempotencyKey()))) {
+                throw new DataIntegrityViolationException("uk_payment_idempotency_key");
+            }
+            payments.forEach(payment -> committedKeys.add(payment.getIdempotencyKey()));
+            return payments;
+        });
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+        writer = new PaymentLedgerWriter(paymentRepository, mock(JdbcTemplate.class),
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(writer, "concurrency", 1);
+    }
+
+    private void start(int maxSize, Duration window) {
+        ReflectionTestUtils.setField(writer, "maxSize", maxSize);
+        ReflectionTestUtils.setField(writer, "window", window);
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.stop();
+    }
+
+    @Test
+    void duplicateKeyFailsOnlyItsOwnInsert() {
+        start(3, Duration.ofSeconds(5));
+
+        Mono<Payment> first = writer.insert(payment("a")).cache();
+        Mono<Payment> duplicate = writer.insert(payment("taken")).cache();
+        Mono<Payment> second = writer.insert(payment("b")).cache();
+
+//        Subscribing enqueues; all three fill one group of max-size 3.
+        first.subscribe(payment -> {}, e -> {});
+        duplicate.subscribe(payment -> {}, e -> {});
+        second.subscribe(payment -> {}, e -> {});
+
+        assertThat(first.block(Duration.ofSeconds(5)).getPaymentId()).isNotNull();
+        assertThat(second.block(Duration.ofSeconds(5)).getPaymentId()).isNotNull();
+        assertThatThrownBy(() -> duplicate.block(Duration.ofSeconds(5)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(committedKeys).containsExactlyInAnyOrder("taken", "a", "b");
+    }
+
+    @Test
+    void commitsSlowerThanTheWindowStillAnswerEveryWrite() {
+        commitMillis.set(50);
+        start(2, Duration.ofMillis(1));
+
+        List<Mono<Payment>> inserts = IntStream.range(0, 20)
+                .mapToObj(i -> writer.insert(payment("slow-" + i)).cache())
+                .toList();
+        inserts.forEach(insert -> insert.subscribe(payment -> {}, e -> {}));
+
+        inserts.forEach(insert -> assertThat(insert.block(Duration.ofSeconds(10)).getPaymentId()).isNotNull());
+        assertThat(committedKeys).hasSize(21);
+    }
+
+    private static Payment payment(String key) {
+        return Payment.builder()
+                .orderId(1L)
+                .amount(100L)
+                .paymentType("UPI")
+                .status("PENDING")
+                .idempotencyKey(key)
+                .build();
+    }
+}
@@ -0,0 +1,58 @@
+package io.poc.paymentservice.reconciliation;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// GroupedCursors over in-memory rows: a DataSource whose query walks the given rows, already ordered by
+// order_id, as (order_id, status) or (order_id, status, touched_at).
+final class FakeCursors {
+
+    private FakeCursors() {
+    }
+
+    static Object[] row(long orderId, String status) {
+        return new Object[]{orderId, status};
+    }
+
+    static Object[] row(long orderId, String status, Timestamp touchedAt) {
+        return new Object[]{orderId, status, touchedAt};
+    }
+
+    static GroupedCursor statuses(Object[]... rows) throws SQLException {
+        return new GroupedCursor(dataSource(2, rows), "SELECT", 0, Long.MAX_VALUE, 100);
+    }
+
+    static GroupedCursor orders(Object[]... rows) throws SQLException {
+        return new GroupedCursor(dataSource(3, rows), "SELECT", 0, Long.MAX_VALUE, 100);
+    }
+
+    static DataSource dataSource(int columns, Object[]... rows) throws SQLException {
+        AtomicInteger current = new AtomicInteger(-1);
+
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenAnswer(invocation -> current.incrementAndGet() < rows.length);
+        when(resultSet.getLong(1)).thenAnswer(invocation -> rows[current.get()][0]);
+        when(resultSet.getString(2)).thenAnswer(invocation -> rows[current.get()][1]);
+        when(resultSet.getTimestamp(3)).thenAnswer(invocation -> rows[current.get()][2]);
+
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(columns);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+}
@@ -0,0 +1,66 @@
+package io.poc.paymentservice.reconciliation;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import static io.poc.paymentservice.reconciliation.FakeCursors.row;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+class GroupedCursorTest {
+
+    @Test
+    void groupsConsecutiveRowsOfAnOrder() throws SQLException {
+        try (GroupedCursor cursor = FakeCursors.statuses(
+                row(1, "RESERVED"), row(1, "CONFIRMED"), row(1, "RESERVED"), row(2, "CANCELLED"))) {
+
+            assertThat(cursor.isExhausted()).isFalse();
+            assertThat(cursor.orderId()).isEqualTo(1);
+            assertThat(cursor.statuses()).containsExactly("CONFIRMED", "RESERVED");
+            assertThat(cursor.touchedAt()).isNull();
+
+            cursor.next();
+            assertThat(cursor.orderId()).isEqualTo(2);
+            assertThat(cursor.statuses()).containsExactly("CANCELLED");
+
+            cursor.next();
+            assertThat(cursor.isExhausted()).isTrue();
+            assertThat(cursor.orderId()).isEqualTo(Long.MAX_VALUE);
+            assertThat(cursor.statuses()).isEmpty();
+            assertThat(cursor.rowsRead()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void carriesTheTimestampWhenSelected() throws SQLException {
+        Timestamp touchedAt = Timestamp.valueOf("2026-01-01 10:00:00");
+
+        try (GroupedCursor cursor = FakeCursors.orders(row(7, "COMPLETED", touchedAt))) {
+            assertThat(cursor.statuses()).containsExactly("COMPLETED");
+            assertThat(cursor.touchedAt()).isEqualTo(touchedAt);
+        }
+    }
+
+    @Test
+    void emptyRangeStartsExhausted() throws SQLException {
+        try (GroupedCursor cursor = FakeCursors.statuses()) {
+            assertThat(cursor.isExhausted()).isTrue();
+            assertThat(cursor.orderId()).isEqualTo(Long.MAX_VALUE);
+        }
+    }
+
+    @Test
+    void closeRollsBackAndReleasesTheConnection() throws SQLException {
+        DataSource dataSource = FakeCursors.dataSource(2, row(1, "PENDING"));
+        new GroupedCursor(dataSource, "SELECT", 0, 10, 100).close();
+
+        Connection connection = dataSource.getConnection();
+        verify(connection).setAutoCommit(false);
+        verify(connection).rollback();
+        verify(connection).close();
+    }
+}
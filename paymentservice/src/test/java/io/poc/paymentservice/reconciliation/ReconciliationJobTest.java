@@ -0,0 +1,117 @@
+package io.poc.paymentservice.reconciliation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static io.poc.paymentservice.reconciliation.FakeCursors.row;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The merge-join over fake cursors, one order per kind of mismatch plus consistent and in-flight orders.
+class ReconciliationJobTest {
+
+    private static final long SETTLED_BEFORE = Timestamp.valueOf("2026-01-01 12:00:00").getTime();
+    private static final Timestamp OLD = Timestamp.valueOf("2026-01-01 10:00:00");
+    private static final Timestamp RECENT = Timestamp.valueOf("2026-01-01 12:10:00");
+
+    @Test
+    void reportsEveryKindOfMismatch() throws SQLException, IOException {
+        GroupedCursor orders = FakeCursors.orders(
+                row(1, "COMPLETED", OLD),
+                row(4, "CREATED", OLD),
+                row(5, "RESERVED", OLD),
+                row(6, "COMPLETED", OLD),
+                row(7, "COMPLETED", OLD),
+                row(8, "COMPLETED", OLD),
+                row(9, "CANCELLED", OLD),
+                row(10, "FAILED", OLD),
+                row(11, "CANCELLED", OLD),
+                row(12, "CREATED", RECENT),
+                row(13, "SHIPPED", OLD),
+                row(14, "CANCELLED", OLD),
+                row(15, "FAILED", OLD));
+        GroupedCursor payments = FakeCursors.statuses(
+                row(1, "PAYMENT_COMPLETE"),
+                row(2, "PAYMENT_COMPLETE"),
+                row(6, "PAYMENT_CANCELLED"),
+                row(7, "PAYMENT_COMPLETE"),
+                row(8, "PAYMENT_COMPLETE"),
+                row(8, "PENDING"),
+                row(9, "PAYMENT_COMPLETE"),
+                row(11, "PAYMENT_CANCELLED"),
+                row(14, "PENDING"),
+                row(15, "PAYMENT_COMPLETE"));
+        GroupedCursor reservations = FakeCursors.statuses(
+                row(1, "CONFIRMED"),
+                row(1, "CONFIRMED"),
+                row(3, "RESERVED"),
+                row(5, "RESERVED"),
+                row(6, "CONFIRMED"),
+                row(7, "CANCELLED"),
+                row(8, "CONFIRMED"),
+                row(9, "CANCELLED"),
+                row(10, "RESERVED"),
+                row(11, "CANCELLED"),
+                row(12, "RESERVED"),
+                row(14, "CANCELLED"),
+                row(15, "CANCELLED"));
+
+        Map<String, Long> mismatches = new TreeMap<>();
+        StringWriter report = new StringWriter();
+        long seen = ReconciliationJob.join(orders, payments, reservations, SETTLED_BEFORE, mismatches, report);
+
+        assertThat(seen).isEqualTo(15);
+        assertThat(report.toString().lines().map(line -> line.substring(0, line.indexOf(',', line.indexOf(',') + 1))))
+                .containsExactly(
+                        "2,PAYMENT_WITHOUT_ORDER",
+                        "3,RESERVATION_WITHOUT_ORDER",
+                        "4,STUCK_CREATED",
+                        "5,STUCK_RESERVED",
+                        "6,COMPLETED_WITHOUT_PAYMENT",
+                        "7,COMPLETED_WITHOUT_CONFIRMED_STOCK",
+                        "8,PAYMENT_LEFT_PENDING",
+                        "9,PAID_BUT_CANCELLED",
+                        "10,STOCK_HELD_FOR_FAILED",
+                        "13,UNKNOWN_ORDER_STATUS",
+                        "14,PAYMENT_LEFT_PENDING",
+                        "15,PAID_BUT_FAILED");
+        assertThat(mismatches).containsEntry("PAYMENT_LEFT_PENDING", 2L).hasSize(11);
+        assertThat(report.toString().lines().findFirst().orElseThrow())
+                .isEqualTo("2,PAYMENT_WITHOUT_ORDER,,PAYMENT_COMPLETE,,");
+        assertThat(reservations.rowsRead()).isEqualTo(13);
+    }
+
+    @Test
+    void classifiesStockHeldForACancelledOrder() {
+        assertThat(ReconciliationJob.classify("CANCELLED", Set.of("PAYMENT_CANCELLED"),
+                Set.of("CONFIRMED"), OLD, SETTLED_BEFORE)).isEqualTo("STOCK_HELD_FOR_CANCELLED");
+        assertThat(ReconciliationJob.classify("COMPLETED", Set.of("PAYMENT_COMPLETE"),
+                Set.of("CONFIRMED"), OLD, SETTLED_BEFORE)).isNull();
+    }
+
+    @Test
+    void partitionsCoverTheSpanWithoutGapsOrOverlap() {
+        for (long[] span : new long[][]{{100, 1000}, {5, 6}, {7, 7}, {0, 1_000_003}}) {
+            for (int partitions : new int[]{1, 3, 4, 16}) {
+                List<long[]> ranges = ReconciliationJob.partitionRanges(span[0], span[1], partitions);
+
+                assertThat(ranges).hasSize(partitions);
+                assertThat(ranges.getFirst()[0]).isEqualTo(span[0]);
+                assertThat(ranges.getLast()[1]).isEqualTo(span[1] + 1);
+                for (int i = 0; i < ranges.size(); i++) {
+                    assertThat(ranges.get(i)[0]).isLessThanOrEqualTo(ranges.get(i)[1]);
+                    if (i > 0) {
+                        assertThat(ranges.get(i)[0]).isEqualTo(ranges.get(i - 1)[1]);
+                    }
+                }
+            }
+        }
+    }
+}